@@ -0,0 +1,49 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package api;
+
+import java.io.Serializable;
+
+/**
+ * The context that the Space passes to TaskDecompose.isAtomic, advising a task
+ * whether to decompose further or to solve directly. Its coarsening is the 
+ * number of decomposition levels by which the application should coarsen 
+ * (if positive) or refine (if negative) its default grain, so that each 
+ * dispatched task runs long enough to amortize the cost of dispatching it, 
+ * but not so long that it limits parallelism.
+ * @author Peter Cappello
+ */
+public class Granularity implements Serializable
+{
+    static final public Granularity DEFAULT = new Granularity( 0 );
+    
+    final private int coarsening;
+    
+    public Granularity( int coarsening ) { this.coarsening = coarsening; }
+    
+    public int coarsening() { return coarsening; }
+    
+    @Override
+    public String toString() { return "Granularity coarsening: " + coarsening; }
+}
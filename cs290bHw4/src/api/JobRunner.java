@@ -67,12 +67,14 @@ public class JobRunner<T> extends JFrame
         if ( args.length == 0 )
         {
             space = new SpaceImpl();
-            int numComputers = Configuration.MULTI_COMPUTERS 
-                             ? 1 // use all my available processors
-                             : Runtime.getRuntime().availableProcessors();
+            final int numProcessors = Runtime.getRuntime().availableProcessors();
+            final int numComputers = Configuration.MULTI_COMPUTERS 
+                                   ? 1 // use all my available processors
+                                   : numProcessors;
             for ( int i = 0; i < numComputers; i++ )
             {
-                space.register( new ComputerImpl(), SpaceImpl.PROXIES_PER_PROCESSOR * numComputers );
+                final int numWorkers = numProcessors / numComputers;
+                new ComputerImpl( space, numWorkers ).join( space, numWorkers );
             }
         }
         else
@@ -89,15 +91,32 @@ public class JobRunner<T> extends JFrame
     
     /**
      * Run the Job: Generate the tasks, retrieve the results, compose a solution
-     * to the original problem, and display the solution.
+     * to the original problem, and display the solution. Partial results that
+     * the job streams are displayed as they arrive.
      * @param task the task that defines the job.
      * @throws RemoteException occurs if there is a communication problem or
      * the remote service is not responding
      */
     public void run( final Task task ) throws RemoteException
     {
-        ReturnValue<T> returnValue = space.compute( task );
-        view( returnValue.view() );
+        final int jobId = space.submit( task );
+        JLabel jLabel = null;
+        ReturnValue<T> returnValue;
+        do
+        {
+            returnValue = space.takeNext( jobId );
+            if ( jLabel == null )
+            {
+                jLabel = returnValue.view( null );
+                view( jLabel );
+                Logger.getLogger( this.getClass().getCanonicalName() )
+                      .log( Level.INFO, "Time to first result: {0} ms.", ( System.nanoTime() - startTime ) / 1000000 );
+            }
+            else
+            {
+                jLabel = returnValue.view( jLabel );
+            }
+        } while ( ! returnValue.isFinal() );
         Logger.getLogger( this.getClass().getCanonicalName() )
               .log( Level.INFO, "Job run time: {0} ms.", ( System.nanoTime() - startTime ) / 1000000 );
     }
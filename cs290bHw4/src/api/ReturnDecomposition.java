@@ -24,14 +24,25 @@
 package api;
 
 import system.Task;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.List;
 import system.Return;
 import system.SpaceImpl;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeVarInt;
 
 public class ReturnDecomposition extends Return
 {    
-    final private TaskCompose compose;
-    final private List<Task> tasks;
+    private TaskCompose compose;
+    private List<Task> tasks;
+    
+    /**
+     * For Externalizable only.
+     */
+    public ReturnDecomposition() {}
     
     public ReturnDecomposition( final TaskCompose compose, final List<Task> tasks )
     {
@@ -43,6 +54,31 @@ public class ReturnDecomposition extends Return
     
     public List<Task> tasks() { return tasks; }
     
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        out.writeObject( compose );
+        writeVarInt( out, tasks.size() );
+        for ( Task task : tasks )
+        {
+            out.writeObject( task );
+        }
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        compose = (TaskCompose) in.readObject();
+        final int numTasks = readVarInt( in );
+        tasks = new ArrayList<>( numTasks );
+        for ( int i = 0; i < numTasks; i++ )
+        {
+            tasks.add( (Task) in.readObject() );
+        }
+    }
+    
     /**
      *
      * @param parentTask the task whose result is to be processed.
@@ -53,17 +89,21 @@ public class ReturnDecomposition extends Return
     {
         final int composeId = space.makeTaskId();
         compose.id( composeId );
+        compose.jobId( parentTask.jobId() );
         compose.composeId( parentTask.composeId() );
         compose.composeArgNum( parentTask.composeArgNum() );
+        compose.depth( parentTask.depth() );
         compose.numArgs( tasks.size() );
-        space.putCompose( compose );
+        compose.cacheKey( parentTask.cacheKey() );
         for ( int i = 0; i < tasks.size(); i++  )
         {
             Task task = tasks.get( i );
             task.id( space.makeTaskId() );
+            task.jobId( parentTask.jobId() );
             task.composeId( composeId );
             task.composeArgNum( i );
-            space.putReadyTask( task ); 
+            task.depth( parentTask.depth() + 1 );
         }
+        space.putDecomposition( parentTask, compose, tasks );
     }
 }
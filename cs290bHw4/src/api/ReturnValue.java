@@ -22,10 +22,19 @@
  * THE SOFTWARE.
  */
 package api;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import javax.swing.JLabel;
 import system.Task;
 import system.Return;
 import system.SpaceImpl;
+import static util.VarInts.readSignedVarInt;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeSignedVarInt;
+import static util.VarInts.writeVarInt;
 
 /**
  * The return value of some task execute method that does NOT decompose into 
@@ -33,21 +42,124 @@ import system.SpaceImpl;
  * @author Peter Cappello
  * @param <T>
  */
-abstract public class ReturnValue<T> extends Return
+abstract public class ReturnValue<T> extends Return implements Cloneable
 {    
-    final private int composeId;
-    final private int composeArgNum;
-    final protected T value;
+    private int jobId;
+    private int composeId;
+    private int composeArgNum;
+    protected T value;
+    
+    /**
+     * For Externalizable only.
+     */
+    public ReturnValue() {}
     
     public ReturnValue( final Task task, final T value ) 
     { 
         assert value != null;
+        jobId = task.jobId();
         composeId = task.composeId();
         composeArgNum = task.composeArgNum();
         this.value = value; 
     }
     
     public T value() { return value; }
+    
+    public int jobId() { return jobId; }
+    
+    /**
+     * 
+     * @return the id of the composition of which this value is an input.
+     */
+    public int composeId() { return composeId; }
+    
+    public int composeArgNum() { return composeArgNum; }
+    
+    /**
+     * 
+     * @param task a task whose value is this one's value.
+     * @return a copy of this, as the Return of the given task; the value is shared.
+     */
+    @SuppressWarnings( "unchecked" )
+    public ReturnValue<T> readdress( final Task task )
+    {
+        final ReturnValue<T> returnValue;
+        try { returnValue = (ReturnValue<T>) clone(); }
+        catch ( CloneNotSupportedException exception ) { throw new AssertionError( exception ); }
+        returnValue.taskId( task.id() );
+        returnValue.jobId = task.jobId();
+        returnValue.composeId = task.composeId();
+        returnValue.composeArgNum = task.composeArgNum();
+        return returnValue;
+    }
+    
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        writeVarInt( out, jobId );
+        writeSignedVarInt( out, composeId ); // FINAL_RETURN_VALUE is negative.
+        writeVarInt( out, composeArgNum );
+        writeValue( out );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        jobId = readVarInt( in );
+        composeId = readSignedVarInt( in );
+        composeArgNum = readVarInt( in );
+        value = readValue( in );
+    }
+    
+    /**
+     * Write the value. A subclass whose value is, e.g., a boxed primitive 
+     * overrides this, and readValue, to write it compactly.
+     * @param out
+     * @throws IOException 
+     */
+    protected void writeValue( final ObjectOutput out ) throws IOException { out.writeObject( value ); }
+    
+    /**
+     * The Space weighs a cached value by this approximate number of bytes. By
+     * default, it is the value's serialized size; a subclass whose value's 
+     * size is known overrides this, to avoid serializing it.
+     * @return the approximate number of bytes that the value occupies.
+     */
+    public long numBytes()
+    {
+        final long[] numBytes = { 0 };
+        try ( ObjectOutputStream out = new ObjectOutputStream( new OutputStream() 
+        {
+            @Override
+            public void write( final int b ) { numBytes[ 0 ]++; }
+
+            @Override
+            public void write( final byte[] b, final int offset, final int length ) { numBytes[ 0 ] += length; }
+        } ) )
+        {
+            writeValue( out );
+        }
+        catch ( IOException exception ) 
+        { 
+            return Long.MAX_VALUE; // too big to cache
+        }
+        return numBytes[ 0 ];
+    }
+    
+    @SuppressWarnings( "unchecked" )
+    protected T readValue( final ObjectInput in ) throws IOException, ClassNotFoundException 
+    { 
+        return (T) in.readObject(); 
+    }
+    
+    /**
+     *
+     * @return true if and only if this is the final result of a job, as 
+     * opposed to a partial result streamed from one of its compositions.
+     */
+    public boolean isFinal() { return composeId == SpaceImpl.FINAL_RETURN_VALUE; }
    
     /**
      * Update the taskCompose task that is waiting for this input.
@@ -57,15 +169,28 @@ abstract public class ReturnValue<T> extends Return
     @Override
     public void process( final Task parentTask, final SpaceImpl space )
     {
-        if ( composeId == SpaceImpl.FINAL_RETURN_VALUE )
+        if ( isFinal() )
         {
             space.putResult( this );
             return;
         }
         TaskCompose taskCompose = space.getCompose( composeId );
         assert taskCompose != null;
+        if ( taskCompose.isStreaming() )
+        {
+            space.putResult( this );
+        }
         taskCompose.arg( composeArgNum, value, space );
     }
     
     abstract public JLabel view();
+    
+    /**
+     * Add this result to a view that is built progressively from the partial 
+     * results of a job, followed by its final result.
+     * @param jLabel the view built from the job's previous results, or null if
+     * there are none.
+     * @return the updated view.
+     */
+    public JLabel view( final JLabel jLabel ) { return view(); }
 }
@@ -44,9 +44,20 @@ public interface Space extends Remote
      * The service name associated with this Remote interface.
      */
     public static String SERVICE_NAME = "Space";
+    
+    /**
+     * The port on which Computers connect, when using the NIO transport.
+     */
+    public static int NIO_PORT = 8002;
+    
+    /**
+     * The priority and weight of a job submitted without them.
+     */
+    public static int DEFAULT_PRIORITY = 0;
+    public static int DEFAULT_WEIGHT   = 1;
 
     /**
-     *
+     * Submit a job, and wait for its final result.
      * @param task to be computed.
      * @return the task's execute method return value.
      * @throws RemoteException
@@ -54,32 +65,114 @@ public interface Space extends Remote
     ReturnValue compute( final Task task ) throws RemoteException;
     
     /**
-     *
-     * @param task
+     * Submit a job. Many jobs, from many clients, may run concurrently.
+     * @param task the job's task.
+     * @return the job's id, which is the handle for taking its results.
+     * @throws RemoteException
+     */
+    int submit( final Task task ) throws RemoteException;
+    
+    /**
+     * Submit a job with a priority and a weight. The tasks of a job are taken
+     * before those of any job with lower priority. Jobs of the same priority 
+     * share the Computers in proportion to their weights.
+     * @param task the job's task.
+     * @param priority the job's priority.
+     * @param weight the job's weight; must be positive.
+     * @return the job's id, which is the handle for taking its results.
      * @throws RemoteException
      */
-    void execute( final Task task ) throws RemoteException;
+    int submit( final Task task, int priority, int weight ) throws RemoteException;
     
     /**
-     *
-     * @param taskList
+     * Offer a newer Shared value for a job, to be broadcast to all Computers.
+     * @param jobId the id of the job.
+     * @param shared the Shared value produced by some task of the job.
      * @throws RemoteException
      */
-    void putAll ( final List<Task> taskList ) throws RemoteException;
+    void upShared( final int jobId, final Shared shared ) throws RemoteException;
     
     /**
-     *
+     * Register a Computer, which is sent tasks immediately. A Computer that 
+     * is registered already rejoins: Its tasks in flight are made ready again.
      * @param computer
-     * @param numWorkerProxies
+     * @param numProcessors the number of tasks the Computer executes concurrently.
+     * @return the Computer's id, with which it sends heartbeats.
      * @throws RemoteException
      */
-//    void register( final Computer computer, List<Worker> workerList ) throws RemoteException;
-    void register( final Computer computer, int numWorkerProxies ) throws RemoteException;
+    int register( final Computer computer, int numProcessors ) throws RemoteException;
+    
+    /**
+     * Tell the Space that a Computer is alive.
+     * @param computerId the id returned when the Computer registered.
+     * @return true if the Computer is registered; false if it has been 
+     * unregistered, e.g., because its heartbeats stopped, and must register again.
+     * @throws RemoteException
+     */
+    boolean heartbeat( int computerId ) throws RemoteException;
+    
+    /**
+     * Drain a Computer, then unregister it: No more tasks are sent to it; 
+     * return when each task in flight to it has returned, or has been made 
+     * ready again. Then, the Computer may be stopped without losing tasks.
+     * @param computer a registered Computer.
+     * @throws RemoteException
+     */
+    void deregister( final Computer computer ) throws RemoteException;
 
     /**
-     *
-     * @return
+     * Wait for the final result of a job, discarding its partial results.
+     * @param jobId the id returned when the job was submitted.
+     * @return the final result of the job.
+     * @throws RemoteException
+     */
+    ReturnValue take( final int jobId ) throws RemoteException;
+    
+    /**
+     * Take the next result of a job: either a partial result, streamed from
+     * one of its streaming compositions, or its final result, after which the
+     * job is finished.
+     * @param jobId the id returned when the job was submitted.
+     * @return the next result of the job.
+     * @throws RemoteException
+     */
+    ReturnValue takeNext( final int jobId ) throws RemoteException;
+    
+    /**
+     * Open a result channel. The results of all jobs submitted to a channel
+     * are taken together, by takeAll, so that a client needs only one thread
+     * to take the results of many concurrent jobs.
+     * @return the channel's id.
+     * @throws RemoteException
+     */
+    int openChannel() throws RemoteException;
+    
+    /**
+     * Submit a job, whose results are to be taken from a channel.
+     * @param task the job's task.
+     * @param priority the job's priority.
+     * @param weight the job's weight; must be positive.
+     * @param channelId the id returned when the channel was opened.
+     * @return the job's id, which identifies its results.
+     * @throws RemoteException
+     */
+    int submit( final Task task, int priority, int weight, int channelId ) throws RemoteException;
+    
+    /**
+     * Wait for a result of some job submitted to the channel, then take all 
+     * the channel's results. A job is finished when its final result is taken.
+     * @param channelId the id returned when the channel was opened.
+     * @return the results, partial and final, in arrival order; empty if and 
+     * only if the channel is closed.
+     * @throws RemoteException
+     */
+    List<ReturnValue> takeAll( int channelId ) throws RemoteException;
+    
+    /**
+     * Close a channel: A takeAll that is waiting returns an empty list. The 
+     * results of its unfinished jobs are discarded.
+     * @param channelId the id returned when the channel was opened.
      * @throws RemoteException
      */
-    ReturnValue take() throws RemoteException;
+    void closeChannel( int channelId ) throws RemoteException;
 }
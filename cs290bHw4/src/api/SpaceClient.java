@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package api;
+
+import java.net.MalformedURLException;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import system.Task;
+
+/**
+ * A headless client of a Space: Each submitted job's final result completes a
+ * CompletableFuture, so that many jobs can be submitted without waiting, and 
+ * without a GUI. The results of all of the client's jobs are taken from one 
+ * Space channel, by one collector thread. Stages that depend on a returned 
+ * future, when not async, run on the collector thread; lengthy ones should 
+ * run async.
+ * @author Peter Cappello
+ */
+public class SpaceClient implements AutoCloseable
+{
+    final private Space space;
+    final private int channelId;
+    final private Map<Integer, Submission<?>> submissions = new ConcurrentHashMap<>();
+    final private Thread collector = new Collector();
+    volatile private boolean isClosed;
+    
+    /**
+     *
+     * @param space the Space, remote or local, to which jobs are submitted.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     */
+    public SpaceClient( final Space space ) throws RemoteException
+    {
+        this.space = space;
+        channelId = space.openChannel();
+        collector.start();
+    }
+    
+    /**
+     *
+     * @param domainName the domain name of the Space's host.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     * @throws NotBoundException There is no Space service bound in the RMI registry.
+     * @throws MalformedURLException the URL provided for the Space RMI registry is malformed.
+     */
+    public SpaceClient( final String domainName ) 
+           throws RemoteException, NotBoundException, MalformedURLException
+    {
+        this( (Space) Naming.lookup( "rmi://" + domainName + ":" + Space.PORT + "/" + Space.SERVICE_NAME ) );
+    }
+    
+    /**
+     * Submit a job, with the default priority and weight.
+     * @param <T> type of the job's value.
+     * @param task the task that defines the job.
+     * @return a future completed by the job's final result.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     */
+    public <T> CompletableFuture<ReturnValue<T>> submit( final Task task ) throws RemoteException
+    {
+        return submit( task, Space.DEFAULT_PRIORITY, Space.DEFAULT_WEIGHT, null );
+    }
+    
+    /**
+     * Submit a job.
+     * @param <T> type of the job's value.
+     * @param task the task that defines the job.
+     * @param priority the job's priority.
+     * @param weight the job's weight; must be positive.
+     * @param partialListener accepts each partial result that the job 
+     * streams, in arrival order, on the collector thread; may be null.
+     * @return a future completed by the job's final result.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     */
+    public <T> CompletableFuture<ReturnValue<T>> submit( final Task task, int priority, int weight, 
+            final Consumer<ReturnValue<T>> partialListener ) throws RemoteException
+    {
+        if ( isClosed )
+        {
+            throw new IllegalStateException( "SpaceClient is closed." );
+        }
+        final int jobId = space.submit( task, priority, weight, channelId );
+        
+        // The job's results may have been collected before its id was returned.
+        final Submission<T> submission = submission( jobId );
+        if ( submission.attach( partialListener ) )
+        {
+            submissions.remove( jobId );
+        }
+        return submission.future;
+    }
+    
+    /**
+     * Close the client's channel. The futures of unfinished jobs complete 
+     * exceptionally.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     */
+    @Override
+    public void close() throws RemoteException
+    {
+        if ( isClosed )
+        {
+            return;
+        }
+        isClosed = true;
+        space.closeChannel( channelId );
+    }
+    
+    /**
+     * 
+     * @param <T> type of the job's value.
+     * @param jobId the id of a submitted job.
+     * @return the job's Submission, which is made by whichever of the 
+     * submitting thread and the collector thread first asks for it.
+     */
+    @SuppressWarnings( "unchecked" ) // a job's Submission is used only with the type of the job's value.
+    private <T> Submission<T> submission( final int jobId )
+    {
+        return (Submission<T>) submissions.computeIfAbsent( jobId, id -> new Submission<T>() );
+    }
+    
+    private class Collector extends Thread
+    {
+        Collector() 
+        {
+            super( "SpaceClient collector" );
+            setDaemon( true );
+        }
+        
+        @Override
+        public void run() 
+        {
+            try
+            {
+                for ( List<ReturnValue> results = space.takeAll( channelId ); ! results.isEmpty(); results = space.takeAll( channelId ) )
+                {
+                    results.forEach( this::collect );
+                }
+            }
+            catch ( RemoteException exception )
+            {
+                Logger.getLogger( SpaceClient.class.getName() ).log( Level.SEVERE, null, exception );
+            }
+            final Exception exception = new IllegalStateException( "SpaceClient is closed." );
+            new ArrayList<>( submissions.values() ).forEach( submission -> submission.future.completeExceptionally( exception ) );
+            submissions.clear();
+        }
+        
+        @SuppressWarnings( "unchecked" ) // the Space returns raw ReturnValues; the job's value has its Submission's type.
+        private void collect( final ReturnValue result )
+        {
+            final int jobId = result.jobId();
+            final Submission<Object> submission = submission( jobId );
+            if ( result.isFinal() ? submission.complete( result ) : submission.partial( result ) )
+            {
+                submissions.remove( jobId );
+            }
+        }
+    }
+    
+    /**
+     * A submitted job's future, and its partial results listener. The 
+     * submitting thread and the collector thread each may find the other's
+     * Submission; the second to use it removes it from the map.
+     * @param <T> type of the job's value.
+     */
+    private static class Submission<T>
+    {
+        final private CompletableFuture<ReturnValue<T>> future = new CompletableFuture<>();
+        private List<ReturnValue<T>> earlyPartials = new ArrayList<>();
+        private Consumer<ReturnValue<T>> partialListener;
+        private boolean isAttached;
+        
+        /**
+         * 
+         * @param partialListener
+         * @return true if and only if the final result has been collected.
+         */
+        synchronized boolean attach( final Consumer<ReturnValue<T>> partialListener )
+        {
+            this.partialListener = partialListener;
+            isAttached = true;
+            earlyPartials.forEach( this::deliver );
+            earlyPartials = null;
+            return future.isDone();
+        }
+        
+        /**
+         * 
+         * @param result
+         * @return false: the job is unfinished.
+         */
+        synchronized boolean partial( final ReturnValue<T> result )
+        {
+            if ( isAttached )
+            {
+                deliver( result );
+            }
+            else
+            {
+                earlyPartials.add( result );
+            }
+            return false;
+        }
+        
+        /**
+         * 
+         * @param result
+         * @return true if and only if the submitting thread has attached.
+         */
+        synchronized boolean complete( final ReturnValue<T> result )
+        {
+            future.complete( result );
+            return isAttached;
+        }
+        
+        private void deliver( final ReturnValue<T> result )
+        {
+            if ( partialListener == null )
+            {
+                return;
+            }
+            try
+            {
+                partialListener.accept( result );
+            }
+            catch ( RuntimeException exception )
+            {
+                Logger.getLogger( SpaceClient.class.getName() ).log( Level.WARNING, null, exception );
+            }
+        }
+    }
+}
@@ -24,65 +24,182 @@
 package api;
 
 import system.Task;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import system.Configuration;
 import system.SpaceImpl;
+import static util.VarInts.readSignedVarInt;
+import static util.VarInts.writeSignedVarInt;
 
 /**
- *
+ * A composition task. Its inputs are set without locking: Each input is 
+ * claimed atomically, by the first thread to deliver it, which accepts and 
+ * sets it; the thread that sets the last unset input completes the task.
  * @author Peter Cappello
  * @param <I> input type.
  */
 public abstract class TaskCompose<I> extends Task
 {
-    private int numUnsetArgs;
-    private List<I> args;
+    private AtomicInteger numUnsetArgs;
+    private AtomicReferenceArray<I> args;
+    private AtomicIntegerArray isClaimed; // 1 if and only if the input is, or is being, set
     
     @Override
     abstract public ReturnValue call();
     
+    /**
+     * Write the inputs, if any, after the Task fields. Before its number of 
+     * inputs is set, the task has none.
+     * @param out
+     * @throws IOException 
+     */
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        if ( args == null )
+        {
+            writeSignedVarInt( out, -1 );
+            return;
+        }
+        writeSignedVarInt( out, args.length() );
+        for ( int i = 0; i < args.length(); i++ )
+        {
+            out.writeObject( args.get( i ) );
+        }
+    }
+    
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        final int numArgs = readSignedVarInt( in );
+        if ( numArgs < 0 )
+        {
+            return;
+        }
+        numArgs( numArgs );
+        for ( int i = 0; i < numArgs; i++ )
+        {
+            final I arg = (I) in.readObject();
+            if ( arg != null )
+            {
+                isClaimed.set( i, 1 );
+                args.set( i, arg );
+                numUnsetArgs.decrementAndGet();
+            }
+        }
+    }
+    
     /**
      *
      * @return the List of inputs.
      */
-    synchronized public List<I> args() { return args; }
+    public List<I> args() 
+    { 
+        final List<I> argList = new ArrayList<>( args.length() );
+        for ( int i = 0; i < args.length(); i++ )
+        {
+            argList.add( args.get( i ) );
+        }
+        return argList;
+    }
     
     /**
      * Set one of this task's inputs.
      * @param argNum the index of this input.
      * @param argValue the value of this input.
-     * @param space if this is the last input this task is waiting for, put
-     * the task in the space's ready task queue; remove it from the waiting task map.
+     * @param space if this is the last input this task is waiting for, 
+     * remove the task from the space's waiting task map, and either call it on
+     * the space or put it in the space's ready task queue.
      */
-    synchronized public void arg( final int argNum, final I argValue, SpaceImpl space ) 
+    public void arg( final int argNum, final I argValue, SpaceImpl space ) 
     { 
-        assert numUnsetArgs > 0 &&  argValue != null && args.get( argNum ) == null; 
-        args.set( argNum, argValue );
-        if ( --numUnsetArgs == 0 )
+        if ( arg( argNum, argValue ) )
         {
-            if ( Configuration.SPACE_CALLABLE )
+            space.removeWaitingTask( id() );
+            if ( isSpaceCallable() )
             {
-                space.processResult( this, this.call() ); // assumes TaskCompose is SPACE_CALLABLE.
+                space.callOnSpace( this );
             }
             else
             {
-                space.putReadyTask( this );
+                space.addReadyTask( this );
             }
-            space.removeWaitingTask( id() );
         }
     }
     
-    synchronized public void numArgs( int numArgs )
-    {
-        assert numArgs >= 0;
-        numUnsetArgs = numArgs;
-        args = Collections.synchronizedList( new ArrayList<>( numArgs ) ) ;
-        for ( int i = 0; i < numArgs; i++ )
+    /**
+     * 
+     * @return true if and only if all of this task's inputs are set.
+     */
+    public boolean isReady() { return numUnsetArgs.get() == 0; }
+    
+    /**
+     * Decided when all inputs are set, so a subclass may decide by its inputs.
+     * @return true if and only if this task is to be called on the Space, 
+     * saving the round trip to a Computer, rather than sent to a Computer.
+     */
+    public boolean isSpaceCallable() { return callCost() <= Configuration.SPACE_CALL_COST_LIMIT; }
+    
+    /**
+     * A hint of the cost of call, in elementary operations, such as the 
+     * combining of 2 values. By default, the number of inputs.
+     * @return the estimated cost of call.
+     */
+    public long callCost() { return args.length(); }
+    
+    /**
+     * Set one of this task's inputs.
+     * @param argNum the index of this input.
+     * @param argValue the value of this input.
+     * @return true if and only if this was the last input this task was 
+     * waiting for. A duplicate input, e.g., from a re-executed task, is ignored,
+     * and is not accepted.
+     */
+    public boolean arg( final int argNum, final I argValue ) 
+    { 
+        assert argValue != null; 
+        if ( ! isClaimed.compareAndSet( argNum, 0, 1 ) )
         {
-            args.add( null );
+            return false;
         }
-        assert args.size() == numArgs;
+        args.set( argNum, accept( argNum, argValue ) );
+        return numUnsetArgs.decrementAndGet() == 0;
+    }
+    
+    /**
+     * A streaming composition's inputs are delivered to the client as partial
+     * results of the job as they arrive, e.g., so that the client can view
+     * them progressively.
+     * @return true if and only if this composition's inputs are streamed.
+     */
+    public boolean isStreaming() { return false; }
+    
+    /**
+     * Incorporate an input as it arrives, before it is stored. A composition
+     * that can fold its inputs into its result incrementally overrides this, 
+     * so that it need not retain each input until the last one arrives. It is
+     * called once per input, even when copies of its task race to deliver it,
+     * but concurrently for different inputs.
+     * @param argNum the index of this input.
+     * @param argValue the value of this input.
+     * @return the value to be stored as this input; not null.
+     */
+    protected I accept( final int argNum, final I argValue ) { return argValue; }
+    
+    public void numArgs( int numArgs )
+    {
+        assert numArgs >= 0;
+        numUnsetArgs = new AtomicInteger( numArgs );
+        args = new AtomicReferenceArray<>( numArgs );
+        isClaimed = new AtomicIntegerArray( numArgs );
     }
 }
@@ -39,13 +39,14 @@ abstract public class TaskDecompose<T> extends Task
      * @return Either a ReturnValue object of a ReturnDecomposition object.
      */
     @Override
-    public Return call() { return isAtomic() ? solve() : divideAndConquer(); }
+    public Return call() { return isAtomic( granularity() ) ? solve() : divideAndConquer(); }
     
     /**
      *
+     * @param granularity the Space's advice on how coarse atomic tasks should be.
      * @return true if and only if this task does not decompose.
      */
-    abstract public boolean isAtomic();
+    abstract public boolean isAtomic( Granularity granularity );
     
     /**
      *
@@ -24,9 +24,14 @@
 package applications.fibonacci;
 
 import api.ReturnValue;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
 import system.Task;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeVarInt;
 
 /**
  *
@@ -34,11 +39,25 @@ import system.Task;
  */
 public class ReturnValueFibonacci extends ReturnValue<Integer>
 {    
+    /**
+     * For Externalizable only.
+     */
+    public ReturnValueFibonacci() {}
+    
     ReturnValueFibonacci( final Task task, Integer value )
     {
         super( task, value );
     }
     
+    @Override
+    protected void writeValue( final ObjectOutput out ) throws IOException { writeVarInt( out, value ); }
+    
+    @Override
+    protected Integer readValue( final ObjectInput in ) throws IOException { return readVarInt( in ); }
+    
+    @Override
+    public long numBytes() { return Integer.BYTES; }
+    
     @Override
     public JLabel view() 
     {
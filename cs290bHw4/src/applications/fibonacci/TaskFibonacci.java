@@ -23,13 +23,20 @@
  */
 package applications.fibonacci;
 
+import api.Granularity;
 import api.JobRunner;
 import api.ReturnDecomposition;
 import api.ReturnValue;
 import system.Task;
 import api.TaskDecompose;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeVarInt;
 
 /**
  * Compute the nth Fibonacci number.
@@ -47,7 +54,12 @@ public class TaskFibonacci extends TaskDecompose<Integer>
         new JobRunner( FRAME_TITLE, args ).run( TASK );
     }
     
-    final private int n;
+    private int n;
+    
+    /**
+     * For Externalizable only.
+     */
+    public TaskFibonacci() {}
             
     public TaskFibonacci( int n ) 
     { 
@@ -58,11 +70,17 @@ public class TaskFibonacci extends TaskDecompose<Integer>
         this.n = n; 
     }
 
+    /**
+     * 
+     * @param granularity each level of coarsening raises the least n that 
+     * decomposes by 1.
+     * @return true if and only if this task does not decompose.
+     */
     @Override
-    public boolean isAtomic() { return n < 2; }
+    public boolean isAtomic( Granularity granularity ) { return n < Math.max( 2, 2 + granularity.coarsening() ); }
 
     @Override
-    public ReturnValue<Integer> solve() { return new ReturnValueFibonacci( this, n ); }
+    public ReturnValue<Integer> solve() { return new ReturnValueFibonacci( this, fibonacci( n ) ); }
 
     @Override
     public ReturnDecomposition divideAndConquer() 
@@ -73,6 +91,29 @@ public class TaskFibonacci extends TaskDecompose<Integer>
         return new ReturnDecomposition( new SumIntegers(), subtasks ); 
     }
     
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        writeVarInt( out, n );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        n = readVarInt( in );
+    }
+    
+    /**
+     * Each F( k ) is computed once, rather than exponentially many times.
+     * @return the key under which the Space caches F( n ).
+     */
+    @Override
+    public Object cacheKey() { return Arrays.asList( TaskFibonacci.class, n ); }
+    
+    static private int fibonacci( int n ) { return n < 2 ? n : fibonacci( n - 2 ) + fibonacci( n - 1 ); }
+    
     @Override
     public String toString()
     {
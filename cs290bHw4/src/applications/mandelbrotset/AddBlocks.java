@@ -25,30 +25,81 @@ package applications.mandelbrotset;
 
 import api.ReturnValue;
 import api.TaskCompose;
-import static applications.mandelbrotset.TaskMandelbrotSet.BLOCK_SIZE;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import static applications.mandelbrotset.TaskMandelbrotSet.N_PIXELS;
 
 /**
- *
+ * Assemble blocks of iteration counts into a frame. Each block is pasted into
+ * the frame as it arrives, and then discarded, so assembly needs no memory
+ * beyond the frame itself.
  * @author Peter Cappello
  */
 public class AddBlocks extends TaskCompose<IterationCounts>
 {    
+    private IterationCounts frame;
+    
     @Override
     public ReturnValue call() 
     {
-        Integer[][] counts = new Integer[N_PIXELS][N_PIXELS];
-        for ( IterationCounts iterationCounts : args() ) 
-        {            
-            // copy blockCounts into counts array
-            Integer[][] blockCounts = iterationCounts.counts();
-            int blockRow = iterationCounts.row();
-            int blockCol = iterationCounts.col();
-            for ( int row = 0; row < BLOCK_SIZE; row++ )
-            {
-                System.arraycopy( blockCounts[ row ], 0, counts[ blockRow * BLOCK_SIZE + row ], blockCol * BLOCK_SIZE, BLOCK_SIZE );
-            }
+        return new ReturnValueIterationCounts( this, frame() );
+    }
+    
+    /**
+     * Blocks are streamed to the client, so that it can paint them as they arrive.
+     * @return true.
+     */
+    @Override
+    public boolean isStreaming() { return true; }
+    
+    /**
+     * The blocks are pasted into the frame as they arrive, by accept.
+     * @return 1: call only returns the assembled frame.
+     */
+    @Override
+    public long callCost() { return 1; }
+    
+    /**
+     * Paste the block into the frame.
+     * @param argNum the index of this block.
+     * @param block the iteration counts of this block.
+     * @return the frame, which is stored in place of the block.
+     */
+    @Override
+    protected IterationCounts accept( final int argNum, final IterationCounts block )
+    {
+        final IterationCounts iterationCounts = frame();
+        iterationCounts.paste( block );
+        return iterationCounts;
+    }
+    
+    /**
+     * The frame is sent, if this task is, so that the inputs, which are the 
+     * frame, remain the frame.
+     * @param out
+     * @throws IOException 
+     */
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        out.writeObject( frame );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        frame = (IterationCounts) in.readObject();
+    }
+    
+    synchronized private IterationCounts frame()
+    {
+        if ( frame == null )
+        {
+            frame = new IterationCounts( new int[ N_PIXELS * N_PIXELS ], N_PIXELS, 0, 0 );
         }
-        return new ReturnValueIterationCounts( this, new IterationCounts( counts, 0, 0 ) );
+        return frame;
     }
 }
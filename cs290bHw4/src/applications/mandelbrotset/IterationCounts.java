@@ -23,32 +23,97 @@
  */
 package applications.mandelbrotset;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeVarInt;
+
 /**
- *
+ * The iteration counts of a square block of pixels, stored row-major in a 
+ * flat int array.
  * @author Peter Cappello
  */
-public class IterationCounts
+public class IterationCounts implements Externalizable
 {
-    final private Integer[][] counts;
-    final private int row;
-    final private int col;
+    private int[] counts;
+    private int size;
+    private int row;
+    private int col;
+    
+    /**
+     * For Externalizable only.
+     */
+    public IterationCounts() {}
     
     /**
-     * Return container for TaskEuclideanTsp.
-     * @param counts
+     * Return container for TaskMandelbrotSet.
+     * @param counts the iteration counts, in row-major order.
+     * @param size the number of rows (and columns) of pixels.
      * @param row
      * @param col
      */
-    public IterationCounts( Integer[][] counts, int row, int col ) 
+    public IterationCounts( int[] counts, int size, int row, int col ) 
     {
+        assert counts.length == size * size;
         this.counts = counts;
+        this.size = size;
         this.row = row;
         this.col = col;
     } 
  
-    public Integer[][] counts() { return counts; }
+    /**
+     * Copy a block of iteration counts into its place in this block.
+     * @param block whose row and col give its position, in units of its size.
+     */
+    public void paste( final IterationCounts block )
+    {
+        final int offset = block.row * block.size * size + block.col * block.size;
+        for ( int blockRow = 0; blockRow < block.size; blockRow++ )
+        {
+            System.arraycopy( block.counts, blockRow * block.size, counts, offset + blockRow * size, block.size );
+        }
+    }
+ 
+    public int[] counts() { return counts; }
+    
+    public int count( int pixelRow, int pixelCol ) { return counts[ pixelRow * size + pixelCol ]; }
+    
+    public int size() { return size; }
     
     public int row() { return row; }
     
     public int col() { return col; }
+    
+    /**
+     * Iteration counts are less than the iteration limit, so each is written
+     * in 1 or 2 bytes, typically.
+     * @param out
+     * @throws IOException 
+     */
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        writeVarInt( out, size );
+        writeVarInt( out, row );
+        writeVarInt( out, col );
+        for ( int count : counts )
+        {
+            writeVarInt( out, count );
+        }
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException
+    {
+        size = readVarInt( in );
+        row = readVarInt( in );
+        col = readVarInt( in );
+        counts = new int[ size * size ];
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            counts[ i ] = readVarInt( in );
+        }
+    }
 }
@@ -28,7 +28,6 @@ import static applications.mandelbrotset.TaskMandelbrotSet.ITERATION_LIMIT;
 import static applications.mandelbrotset.TaskMandelbrotSet.N_PIXELS;
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -40,22 +39,53 @@ import system.Task;
  */
 public class ReturnValueIterationCounts extends ReturnValue<IterationCounts>
 {
+    /**
+     * For Externalizable only.
+     */
+    public ReturnValueIterationCounts() {}
+    
     ReturnValueIterationCounts( final Task task, final IterationCounts counts ) { super( task, counts ); }
     
+    @Override
+    public long numBytes() { return (long) Integer.BYTES * value().counts().length; }
+    
     @Override
     public JLabel view() 
     {
-        final Integer[][] counts = value().counts();
-        final Image image = new BufferedImage( N_PIXELS, N_PIXELS, BufferedImage.TYPE_INT_ARGB );
+        final BufferedImage image = new BufferedImage( N_PIXELS, N_PIXELS, BufferedImage.TYPE_INT_ARGB );
+        paint( image );
+        return new JLabel( new ImageIcon( image ) );
+    }
+    
+    /**
+     * Paint this block of iteration counts into the frame's image.
+     * @param jLabel the view of the frame, or null if this is its first block.
+     * @return the view of the frame.
+     */
+    @Override
+    public JLabel view( final JLabel jLabel ) 
+    {
+        if ( jLabel == null )
+        {
+            return view();
+        }
+        paint( (BufferedImage) ( (ImageIcon) jLabel.getIcon() ).getImage() );
+        jLabel.repaint();
+        return jLabel;
+    }
+    
+    private void paint( final BufferedImage image )
+    {
+        final IterationCounts counts = value();
+        final int rowOffset = counts.row() * counts.size();
+        final int colOffset = counts.col() * counts.size();
         final Graphics graphics = image.getGraphics();
-        for ( int i = 0; i < counts.length; i++ )
-            for ( int j = 0; j < counts.length; j++ )
+        for ( int i = 0; i < counts.size(); i++ )
+            for ( int j = 0; j < counts.size(); j++ )
             {
-                graphics.setColor( getColor( counts[i][j] ) );
-                graphics.fillRect( i, N_PIXELS - j, 1, 1 );
+                graphics.setColor( getColor( counts.count( i, j ) ) );
+                graphics.fillRect( rowOffset + i, N_PIXELS - ( colOffset + j ), 1, 1 );
             }
-        final ImageIcon imageIcon = new ImageIcon( image );
-        return new JLabel( imageIcon );
     }
     
     private Color getColor( final int iterationCount )
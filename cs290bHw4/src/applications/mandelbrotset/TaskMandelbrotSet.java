@@ -22,12 +22,19 @@
  * THE SOFTWARE.
  */
 package applications.mandelbrotset;
+import api.Granularity;
 import api.JobRunner;
 import api.ReturnDecomposition;
 import system.Task;
 import api.TaskDecompose;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeVarInt;
 
 /**
  *
@@ -51,13 +58,18 @@ public class TaskMandelbrotSet extends TaskDecompose<IterationCounts>
         new JobRunner( FRAME_TITLE, args ).run( TASK );
     }
     
-    final private double lowerLeftX;
-    final private double lowerLeftY;
-    final private double edgeLength;
-    final private int numPixels;
-    final private int iterationLimit;
-    final private int blockRow;
-    final private int blockCol;
+    private double lowerLeftX;
+    private double lowerLeftY;
+    private double edgeLength;
+    private int numPixels;
+    private int iterationLimit;
+    private int blockRow;
+    private int blockCol;
+    
+    /**
+     * For Externalizable only.
+     */
+    public TaskMandelbrotSet() {}
             
     public TaskMandelbrotSet( final double lowerLeftX, final double lowerLeftY, 
             final double edgeLength, final int numPixels, 
@@ -72,20 +84,26 @@ public class TaskMandelbrotSet extends TaskDecompose<IterationCounts>
         this.blockCol = blockCol;
     }
     
+    /**
+     * 
+     * @param granularity unused: The blocks of a frame have a fixed size, so
+     * that AddBlocks can assemble them, and the client can paint them, in place.
+     * @return true if and only if this task does not decompose.
+     */
     @Override
-    public boolean isAtomic() { return MAX_NUM_PIXELS < numPixels; }
+    public boolean isAtomic( Granularity granularity ) { return numPixels <= MAX_NUM_PIXELS; }
 
     @Override
     public ReturnValueIterationCounts solve()
     {
-        final Integer[][] counts = new Integer[numPixels][numPixels];
+        final int[] counts = new int[ numPixels * numPixels ];
         final double delta = edgeLength / numPixels;
         for ( int row = 0; row < numPixels; row++ )
             for ( int col = 0; col < numPixels; col++ )
             {
-                counts[row][col] = getIterationCount( row, col, delta );
+                counts[ row * numPixels + col ] = getIterationCount( row, col, delta );
             }
-        return new ReturnValueIterationCounts( this, new IterationCounts( counts, blockRow, blockCol ) );
+        return new ReturnValueIterationCounts( this, new IterationCounts( counts, numPixels, blockRow, blockCol ) );
     }
 
     @Override
@@ -107,6 +125,42 @@ public class TaskMandelbrotSet extends TaskDecompose<IterationCounts>
         return new ReturnDecomposition( new AddBlocks(), subtasks );
     }
     
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        out.writeDouble( lowerLeftX );
+        out.writeDouble( lowerLeftY );
+        out.writeDouble( edgeLength );
+        writeVarInt( out, numPixels );
+        writeVarInt( out, iterationLimit );
+        writeVarInt( out, blockRow );
+        writeVarInt( out, blockCol );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        lowerLeftX = in.readDouble();
+        lowerLeftY = in.readDouble();
+        edgeLength = in.readDouble();
+        numPixels = readVarInt( in );
+        iterationLimit = readVarInt( in );
+        blockRow = readVarInt( in );
+        blockCol = readVarInt( in );
+    }
+    
+    /**
+     * A repeated view computes no block twice, while its blocks are cached.
+     * @return the key under which the Space caches this block.
+     */
+    @Override
+    public Object cacheKey() 
+    { 
+        return Arrays.asList( TaskMandelbrotSet.class, lowerLeftX, lowerLeftY, edgeLength, numPixels, iterationLimit, blockRow, blockCol ); 
+    }
+    
     @Override
     public String toString()
     {
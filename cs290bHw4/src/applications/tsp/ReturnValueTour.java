@@ -29,7 +29,6 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.ImageIcon;
@@ -44,15 +43,19 @@ public class ReturnValueTour extends ReturnValue<Tour>
 {
     static final private int NUM_PIXELS = 600;
     
+    /**
+     * For Externalizable only.
+     */
+    public ReturnValueTour() {}
+    
     ReturnValueTour( final Task task, final Tour tour ) { super( task, tour ); }
     
     @Override
     public JLabel view() 
     {
-        List<Integer> cityList = value().tour();
+        final int[] tour = value().tour();
         Logger.getLogger( this.getClass().getCanonicalName() )
               .log( Level.INFO, "Tour: {0}", value().toString() );
-        Integer[] tour = cityList.toArray( new Integer[0] );
 
         // display the graph graphically, as it were
         // get minX, maxX, minY, maxY, assuming 0.0 <= mins
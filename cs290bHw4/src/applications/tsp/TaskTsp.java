@@ -23,19 +23,23 @@
  */
 package applications.tsp;
 
+import api.Granularity;
 import api.JobRunner;
 import api.ReturnDecomposition;
 import api.ReturnValue;
 import system.Task;
 import api.TaskDecompose;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import util.Graph;
 import util.Permutation;
+import static util.VarInts.readVarInts;
+import static util.VarInts.writeVarInts;
 
 /**
  * Find a tour of minimum cost among those that start with city 0, 
@@ -59,17 +63,18 @@ public class TaskTsp extends TaskDecompose<Tour>
 	{ 6, 6 },
 	{ 3, 6 }
     };
-    static final public double[][] DISTANCES = initializeDistances();
+    static final public int NUM_CITIES = CITIES.length;
+    static final public double[] DISTANCES = initializeDistances(); // row-major NUM_CITIES x NUM_CITIES matrix
     static final Integer MAX_UNVISITED_CITIES = 10;
     
-    static private List<Integer> initialPartialTour()
+    static private int[] initialPartialTour()
     {
-        return Arrays.asList( 0 );
+        return new int[] { 0 };
     }
     
-    static private List<Integer> initialUnvisitedCities()
+    static private int[] initialUnvisitedCities()
     {
-        return IntStream.range( 1, CITIES.length ).boxed().collect( Collectors.toList() );
+        return IntStream.range( 1, NUM_CITIES ).toArray();
     }
     
     // Configure Job
@@ -81,47 +86,85 @@ public class TaskTsp extends TaskDecompose<Tour>
         new JobRunner( FRAME_TITLE, args ).run( TASK );
     }
     
-    final private List<Integer> partialTour;
-    final private List<Integer> unvisitedCities;
+    private int[] partialTour;
+    private int[] unvisitedCities;
     
-    private List<Integer> shortestTour;
+    // solve's state: not sent.
+    private int[] shortestTour;
     double shortestTourDistance;
+    
+    /**
+     * For Externalizable only.
+     */
+    public TaskTsp() {}
             
-    public TaskTsp( List<Integer> partialTour, List<Integer> unvisitedCities )
+    public TaskTsp( int[] partialTour, int[] unvisitedCities )
     {
         this.partialTour = partialTour;
         this.unvisitedCities = unvisitedCities;
     }
     
+    /**
+     * 
+     * @param granularity each level of coarsening raises the number of 
+     * unvisited cities of an atomic task by 1.
+     * @return true if and only if this task does not decompose.
+     */
     @Override
-    public boolean isAtomic() { return unvisitedCities.size() <= MAX_UNVISITED_CITIES; }
+    public boolean isAtomic( Granularity granularity ) 
+    { 
+        return unvisitedCities.length <= Math.max( 1, MAX_UNVISITED_CITIES + granularity.coarsening() ); 
+    }
     
     /**
      * Produce a tour of minimum cost from the set of tours, having as its
      * elements each tour consisting of the sequence of cities in partialTour 
      * followed by a permutation of the unvisitedCities.
-     * @return a tour of minimum cost.
+     * The search is branch-and-bound: A partial tour is not extended if its 
+     * cost is no less than the upper bound, which is the cost of the shortest
+     * tour found so far by this or any other task of the job.
+     * @return a tour of minimum cost, or some tour, if no tour in the set 
+     * costs less than the upper bound.
      */
      @Override
     public ReturnValue solve() 
     {
-        shortestTour = new ArrayList<>( partialTour );
-        shortestTour.addAll( unvisitedCities );
-        shortestTourDistance = tourDistance( CITIES, shortestTour );
-        List<Integer> permutation = new ArrayList<>( unvisitedCities );
-        Permutation.iterate( permutation, 0, p -> consumePermutation( p ) );
+        final int[] tour = Arrays.copyOf( partialTour, partialTour.length + unvisitedCities.length );
+        System.arraycopy( unvisitedCities, 0, tour, partialTour.length, unvisitedCities.length );
+        shortestTour = tour.clone();
+        shortestTourDistance = tourDistance( tour );
+        double partialTourDistance = 0.0;
+        for ( int city = 0; city < partialTour.length - 1; city++ )
+        {
+            partialTourDistance += distance( tour[ city ], tour[ city + 1 ] );
+        }
+        Permutation.iterate( tour, partialTour.length, partialTourDistance, TaskTsp::distance, new BranchAndBound() );
         return new ReturnValueTour( this, new Tour( shortestTour, shortestTourDistance ) );
     }
     
-    private void consumePermutation( final List<Integer> permutation )
+    /**
+     * Consumes the tours, bounding their enumeration by the cost of the 
+     * shortest tour found so far by any task of the job.
+     */
+    private class BranchAndBound implements Permutation.Visitor
     {
-        List<Integer> tour = new ArrayList<>( partialTour );
-        tour.addAll( permutation );
-        double tourDistance = tourDistance( CITIES, tour );
-        if ( tourDistance < shortestTourDistance )
+        @Override
+        public double bound() 
+        { 
+            final SharedTourCost sharedTourCost = (SharedTourCost) shared();
+            return sharedTourCost == null ? shortestTourDistance : Math.min( shortestTourDistance, sharedTourCost.cost() );
+        }
+
+        @Override
+        public void visit( final int[] tour, final double pathDistance ) 
         {
-            shortestTour = tour;
-            shortestTourDistance = tourDistance;
+            final double tourDistance = pathDistance + distance( tour[ tour.length - 1 ], tour[ 0 ] );
+            if ( tourDistance < shortestTourDistance )
+            {
+                System.arraycopy( tour, 0, shortestTour, 0, tour.length );
+                shortestTourDistance = tourDistance;
+                shared( new SharedTourCost( tourDistance ) );
+            }
         }
     }
 
@@ -135,42 +178,67 @@ public class TaskTsp extends TaskDecompose<Tour>
     public ReturnDecomposition divideAndConquer() 
     {
         final List<Task> subtasks = new  LinkedList<>();
-        unvisitedCities.forEach( unvisitedCity -> 
+        for ( int i = 0; i < unvisitedCities.length; i++ )
         {
-            List<Integer> subtaskPartialTour = new ArrayList<>( partialTour );
-            List<Integer> subtaskUnvisitedCities = new ArrayList<>( unvisitedCities );
-            subtaskUnvisitedCities.remove( unvisitedCity );
-            subtaskPartialTour.add( unvisitedCity ); // extend tour with this city.
+            final int[] subtaskPartialTour = Arrays.copyOf( partialTour, partialTour.length + 1 );
+            subtaskPartialTour[ partialTour.length ] = unvisitedCities[ i ]; // extend tour with this city.
+            final int[] subtaskUnvisitedCities = new int[ unvisitedCities.length - 1 ];
+            System.arraycopy( unvisitedCities, 0, subtaskUnvisitedCities, 0, i );
+            System.arraycopy( unvisitedCities, i + 1, subtaskUnvisitedCities, i, unvisitedCities.length - i - 1 );
             subtasks.add(new TaskTsp( subtaskPartialTour, subtaskUnvisitedCities ) );
-        });
+        }
         return new ReturnDecomposition( new MinTour(), subtasks );
     }
     
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        super.writeExternal( out );
+        writeVarInts( out, partialTour );
+        writeVarInts( out, unvisitedCities );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        super.readExternal( in );
+        partialTour = readVarInts( in );
+        unvisitedCities = readVarInts( in );
+    }
+    
     @Override
     public String toString()
     {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append( getClass() );
         stringBuilder.append( " Partial tour: \n" );
-        partialTour.stream().forEach( city -> 
+        for ( int city : partialTour )
         {
             stringBuilder.append( city ).append( ": " );
             stringBuilder.append( CITIES[ city ][ 0 ] ).append( " " ).append( CITIES[ city ][ 1 ] ).append( '\n' );
-        } );
+        }
         stringBuilder.append( "\n\tUnvisited cities: " );
-        unvisitedCities.forEach( city -> stringBuilder.append( city ).append( ' ' ) );
+        for ( int city : unvisitedCities )
+        {
+            stringBuilder.append( city ).append( ' ' );
+        }
         return stringBuilder.toString();
     }
     
-    static public double tourDistance( final double[][] cities, final List<Integer> tour )
+    static public double tourDistance( final int[] tour )
     {
-       double cost = distance( cities[ tour.get( tour.size() - 1 ) ], cities[ tour.get( 0 ) ] );
-       for ( int city = 0; city < tour.size() - 1; city ++ )
+       double cost = distance( tour[ tour.length - 1 ], tour[ 0 ] );
+       for ( int city = 0; city < tour.length - 1; city ++ )
        {
-           cost += distance( cities[ tour.get( city ) ], cities[ tour.get( city + 1 ) ] );
+           cost += distance( tour[ city ], tour[ city + 1 ] );
        }
        return cost;
     }
+    
+    static private double distance( final int city1, final int city2 )
+    {
+        return DISTANCES[ city1 * NUM_CITIES + city2 ];
+    }
    
     static private double distance( final double[] city1, final double[] city2 )
     {
@@ -179,13 +247,13 @@ public class TaskTsp extends TaskDecompose<Tour>
        return Math.sqrt( deltaX * deltaX + deltaY * deltaY );
     }
    
-    static private double[][] initializeDistances()
+    static private double[] initializeDistances()
     {
-        double[][] distances = new double[ CITIES.length][ CITIES.length];
-        for ( int i = 0; i < CITIES.length; i++ )
+        double[] distances = new double[ NUM_CITIES * NUM_CITIES ];
+        for ( int i = 0; i < NUM_CITIES; i++ )
         for ( int j = 0; j < i; j++ )
         {
-            distances[ i ][ j ] = distances[ j ][ i ] = distance( CITIES[ i ], CITIES[ j ] );
+            distances[ i * NUM_CITIES + j ] = distances[ j * NUM_CITIES + i ] = distance( CITIES[ i ], CITIES[ j ] );
         }
        return distances;
     }
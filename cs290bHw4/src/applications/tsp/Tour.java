@@ -23,33 +23,57 @@
  */
 package applications.tsp;
 
-import java.io.Serializable;
-import java.util.List;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import static util.VarInts.readVarInts;
+import static util.VarInts.writeVarInts;
 
 /**
  *
  * @author Peter Cappello
  */
-public class Tour implements Serializable
+public class Tour implements Externalizable
 {
-    final private List<Integer> tour;
-    final private double cost;
+    private int[] tour;
+    private double cost;
+    
+    /**
+     * For Externalizable only.
+     */
+    public Tour() {}
     
     /**
      * Return container for TaskEuclideanTsp.
      * @param tour
      * @param cost
      */
-    public Tour( List<Integer> tour, double cost ) 
+    public Tour( int[] tour, double cost ) 
     {
         this.tour = tour;
         this.cost = cost;
     } 
  
-    public List<Integer> tour() { return tour; }
+    public int[] tour() { return tour; }
     
     public double cost() { return cost; }
     
     @Override
-    public String toString() { return tour.toString() + "\n\tCost: " + cost; }
+    public String toString() { return Arrays.toString( tour ) + "\n\tCost: " + cost; }
+    
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        writeVarInts( out, tour );
+        out.writeDouble( cost );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException
+    {
+        tour = readVarInts( in );
+        cost = in.readDouble();
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.ReturnValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A result channel: a queue of the results, partial and final, of all the 
+ * jobs submitted to it. A client takes the results of many jobs from one
+ * channel, instead of dedicating a thread to each job.
+ * @author Peter Cappello
+ */
+class Channel 
+{
+    // A blocked take returns at least this often, to notice that the channel is closed.
+    static final private long POLL_INTERVAL = 1000; // milliseconds
+    
+    final private int id;
+    final private BlockingQueue<ReturnValue> resultQ = new LinkedBlockingQueue<>();
+    volatile private boolean isClosed;
+    
+    Channel( final int id ) { this.id = id; }
+    
+    int id() { return id; }
+    
+    BlockingQueue<ReturnValue> resultQ() { return resultQ; }
+    
+    void close() { isClosed = true; }
+    
+    /**
+     * Wait for a result, then take all results in the queue.
+     * @return the results, in arrival order; empty if and only if the 
+     * channel is closed.
+     * @throws InterruptedException
+     */
+    List<ReturnValue> takeResults() throws InterruptedException
+    {
+        final List<ReturnValue> results = new ArrayList<>();
+        ReturnValue result;
+        do
+        {
+            result = resultQ.poll( POLL_INTERVAL, TimeUnit.MILLISECONDS );
+        } while ( result == null && ! isClosed );
+        if ( result != null )
+        {
+            results.add( result );
+            resultQ.drainTo( results );
+        }
+        return results;
+    }
+}
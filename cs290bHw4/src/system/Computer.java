@@ -23,8 +23,10 @@
  */
 package system;
 
+import api.Shared;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  *
@@ -33,4 +35,29 @@ import java.rmi.RemoteException;
 public interface Computer extends Remote
 {            
     public Return execute( Task task ) throws RemoteException;
+    
+    /**
+     * Put a batch of tasks into this Computer's ready task queue, to be 
+     * executed by its worker threads.
+     * @param tasks to be executed.
+     * @throws RemoteException
+     */
+    public void putTasks( List<Task> tasks ) throws RemoteException;
+    
+    /**
+     * Take all Returns from this Computer's result queue; block until at least
+     * one is available.
+     * @return the Returns of some tasks that were put into this Computer.
+     * @throws RemoteException
+     */
+    public List<Return> takeResults() throws RemoteException;
+    
+    /**
+     * Update this Computer's Shared value for a job, if the given one is newer.
+     * @param jobId the id of the job.
+     * @param shared the Shared value broadcast by the Space, or null to clear 
+     * it, when the job is finished.
+     * @throws RemoteException
+     */
+    public void downShared( int jobId, Shared shared ) throws RemoteException;
 }
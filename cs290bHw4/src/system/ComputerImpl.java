@@ -26,29 +26,148 @@ import api.*;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * An implementation of the Remote Computer interface.
+ * The Computer has a local ready task queue, which its ComputerProxy keeps
+ * nonempty with best effort, and a local result queue, which its ComputerProxy
+ * keeps empty with best effort. Each of the Computer's Worker threads takes a 
+ * task from the ready task queue, executes it, and puts its Return into the
+ * result queue.
+ * A Computer that joins a Space sends it heartbeats. If the Space has 
+ * unregistered it, e.g., because its heartbeats were delayed, it discards its
+ * queued tasks and Returns, which the Space has made ready again, and rejoins.
+ * When its JVM is shut down, it leaves the Space: It is drained first.
  * @author Peter Cappello
  */
 public class ComputerImpl extends UnicastRemoteObject implements Computer
-{           
-    public ComputerImpl() throws RemoteException
+{
+    static final private Shared NO_SHARED = new Shared() 
     {
+        @Override
+        public boolean isNewerThan( final Shared that ) { return false; }
+    };
+    
+    final private BlockingQueue<Task>   readyTaskQ = new LinkedBlockingQueue<>();
+    final private BlockingQueue<Return> resultQ    = new LinkedBlockingQueue<>();
+    final private SpaceLink spaceLink;
+    final private ForkJoinPool forkJoinPool;
+    // A job's entry is made when its first task or Shared value arrives, and
+    // removed when it is finished, after which a late task's Shared value is 
+    // ignored. NO_SHARED marks a job that has no Shared value yet.
+    final private Map<Integer, Shared> sharedMap = new ConcurrentHashMap<>();
+    private volatile Space space;
+    private volatile int numProcessors;
+    private volatile int computerId;
+    private volatile boolean isLeaving;
+    
+    /**
+     *
+     * @param space the Space with which this Computer registers.
+     * @throws RemoteException
+     */
+    public ComputerImpl( final Space space ) throws RemoteException
+    {
+        this( space, Runtime.getRuntime().availableProcessors() );
+    }
+    
+    /**
+     *
+     * @param space the Space with which this Computer registers.
+     * @param numWorkers the number of Worker threads that execute tasks.
+     * @throws RemoteException
+     */
+    public ComputerImpl( final Space space, final int numWorkers ) throws RemoteException
+    {
+        this( space::upShared, numWorkers );
+    }
+    
+    /**
+     *
+     * @param spaceLink the link to the Space, over which Shared values are sent.
+     * @param numWorkers the number of Worker threads that execute tasks.
+     * @throws RemoteException
+     */
+    ComputerImpl( final SpaceLink spaceLink, final int numWorkers ) throws RemoteException
+    {
+        this.spaceLink = spaceLink;
+        forkJoinPool = Configuration.COMPUTER_FORK_JOIN ? new ForkJoinPool( numWorkers ) : null;
+        for ( int i = 0; i < numWorkers; i++ )
+        {
+            new Worker().start();
+        }
         Logger.getLogger( this.getClass().getCanonicalName() )
-              .log(Level.INFO, "Computer: started with {0} available processors.", Runtime.getRuntime().availableProcessors() );
+              .log(Level.INFO, "Computer: started with {0} workers.", numWorkers );
     }
 
     public static void main( String[] args ) throws Exception
     {
+        if ( Configuration.NIO_TRANSPORT )
+        {
+            NioComputerClient.main( args );
+            return;
+        }
         System.setSecurityManager( new SecurityManager() );
         final String domainName = args.length == 0 ? "localhost" : args[ 0 ];
         System.out.println("domainName: " + domainName );
         final String url = "rmi://" + domainName + ":" + Space.PORT + "/" + Space.SERVICE_NAME;
         final Space space = ( Space ) Naming.lookup( url );
-        space.register( new ComputerImpl(), Runtime.getRuntime().availableProcessors() );
+        final ComputerImpl computer = new ComputerImpl( space );
+        computer.join( space, Runtime.getRuntime().availableProcessors() );
+        Runtime.getRuntime().addShutdownHook( new Thread( () -> 
+        {
+            try { computer.leave(); }
+            catch ( RemoteException exception ) {} // the Space makes its tasks ready again.
+        }));
+    }
+    
+    /**
+     * Register with a Space, and send it heartbeats, rejoining if it has 
+     * unregistered this Computer.
+     * @param space the Space to join.
+     * @param numProcessors the number of tasks this Computer executes concurrently.
+     * @throws RemoteException
+     */
+    public void join( final Space space, final int numProcessors ) throws RemoteException
+    {
+        this.space = space;
+        this.numProcessors = numProcessors;
+        computerId = space.register( this, numProcessors );
+        if ( Configuration.HEARTBEATS )
+        {
+            new Heartbeat().start();
+        }
+    }
+    
+    /**
+     * Leave the Space that this Computer joined: Return when each task in 
+     * flight to it has returned. Then, this Computer may be stopped without
+     * losing tasks.
+     * @throws RemoteException
+     */
+    public void leave() throws RemoteException
+    {
+        isLeaving = true;
+        space.deregister( this );
+    }
+    
+    /**
+     * Discard the queued tasks and Returns, which the Space has made ready again.
+     */
+    void reset()
+    {
+        readyTaskQ.clear();
+        resultQ.clear();
     }
     
     /**
@@ -60,10 +179,231 @@ public class ComputerImpl extends UnicastRemoteObject implements Computer
     @Override
     public Return execute( Task task ) throws RemoteException 
     { 
+        sharedMap.putIfAbsent( task.jobId(), NO_SHARED );
+        return executeTask( task );
+    }
+    
+    /**
+     * Put a batch of Tasks into the ready task queue.
+     * @param tasks to be executed.
+     * @throws RemoteException
+     */
+    @Override
+    public void putTasks( List<Task> tasks ) throws RemoteException 
+    { 
+        tasks.forEach( task -> sharedMap.putIfAbsent( task.jobId(), NO_SHARED ) );
+        readyTaskQ.addAll( tasks ); 
+    }
+    
+    /**
+     * Take all Returns from the result queue, waiting for the first.
+     * @return the Returns of some executed tasks.
+     * @throws RemoteException
+     */
+    @Override
+    public List<Return> takeResults() throws RemoteException
+    {
+        final List<Return> results = new ArrayList<>();
+        try { results.add( resultQ.take() ); }
+        catch ( InterruptedException exception )
+        {
+            throw new RemoteException( "Computer interrupted while taking results.", exception );
+        }
+        resultQ.drainTo( results );
+        return results;
+    }
+    
+    /**
+     * Update a job's Shared value, if the given one is newer.
+     * @param jobId the id of the job.
+     * @param shared the Shared value broadcast by the Space, or null to clear it.
+     * @throws RemoteException
+     */
+    @Override
+    public void downShared( int jobId, Shared shared ) throws RemoteException
+    {
+        if ( shared == null )
+        {
+            sharedMap.remove( jobId );
+        }
+        else
+        {
+            sharedMap.merge( jobId, shared, ComputerImpl::newer );
+        }
+    }
+    
+    Shared shared( final int jobId ) 
+    { 
+        final Shared shared = sharedMap.get( jobId );
+        return shared == NO_SHARED ? null : shared; 
+    }
+    
+    /**
+     * Update a job's Shared value and propagate it to the Space, if the given
+     * one is newer, and the job is not finished.
+     * @param jobId the id of the job.
+     * @param shared the Shared value produced by a task of the job.
+     */
+    void upShared( final int jobId, final Shared shared )
+    {
+        if ( sharedMap.computeIfPresent( jobId, ( id, oldShared ) -> newer( oldShared, shared ) ) != shared )
+        {
+            return;
+        }
+        try { spaceLink.upShared( jobId, shared ); }
+        catch ( RemoteException exception )
+        {
+            Logger.getLogger( this.getClass().getName() )
+                  .log( Level.WARNING, null, exception );
+        }
+    }
+    
+    /**
+     * 
+     * @param oldShared a job's Shared value, or NO_SHARED.
+     * @param newShared a Shared value of the job; not null.
+     * @return the newer of the two.
+     */
+    private static Shared newer( final Shared oldShared, final Shared newShared )
+    {
+        return newShared.isNewerThan( oldShared == NO_SHARED ? null : oldShared ) ? newShared : oldShared;
+    }
+    
+    /**
+     * The Computer's link to its Space: the Space itself, over RMI, or a 
+     * connection of another transport.
+     */
+    interface SpaceLink { void upShared( int jobId, Shared shared ) throws RemoteException; }
+    
+    private Return executeTask( final Task task )
+    {
+        task.computer( this );
         final long startTime = System.nanoTime();
-        final Return returnValue = task.call();
+        final Return returnValue = Configuration.COMPUTER_FORK_JOIN && task.depth() >= Configuration.FORK_JOIN_DEPTH
+                                 ? forkJoinPool.invoke( new Subtree( task ) )
+                                 : task.call();
         final long runTime = ( System.nanoTime() - startTime ) / 1000000; // milliseconds
+        returnValue.taskId( task.id() );
         returnValue.taskRunTime( runTime );
         return returnValue;
     }
+    
+    /**
+     * Compute the subtree of tasks rooted at a task, forking the subtasks of 
+     * each decomposition and composing their values locally.
+     */
+    private class Subtree extends RecursiveTask<ReturnValue>
+    {
+        final private Task task;
+        
+        Subtree( final Task task ) { this.task = task; }
+        
+        @Override
+        protected ReturnValue compute() 
+        {
+            task.computer( ComputerImpl.this );
+            final Return result = task.call();
+            if ( result instanceof ReturnValue )
+            {
+                return (ReturnValue) result;
+            }
+            final ReturnDecomposition decomposition = (ReturnDecomposition) result;
+            final TaskCompose<?> compose = decomposition.compose();
+            final List<Task> tasks = decomposition.tasks();
+            compose.id( task.id() );
+            compose.jobId( task.jobId() );
+            compose.composeId( task.composeId() );
+            compose.composeArgNum( task.composeArgNum() );
+            compose.depth( task.depth() );
+            compose.numArgs( tasks.size() );
+            final List<Subtree> subtrees = new ArrayList<>( tasks.size() );
+            for ( Task subtask : tasks )
+            {
+                subtask.jobId( task.jobId() );
+                subtask.depth( task.depth() + 1 );
+                subtask.granularity( task.granularity() );
+                subtrees.add( new Subtree( subtask ) );
+            }
+            invokeAll( subtrees );
+            for ( int i = 0; i < subtrees.size(); i++ )
+            {
+                arg( compose, i, subtrees.get( i ).join().value() );
+            }
+            ( (Task) compose ).computer( ComputerImpl.this );
+            return compose.call();
+        }
+        
+        /**
+         * Give a composition one of its inputs.
+         * @param <I> the type of the composition's inputs.
+         * @param compose the composition.
+         * @param argNum the number of the input.
+         * @param argValue the value of the subtask whose number is argNum.
+         */
+        @SuppressWarnings( "unchecked" ) // a subtask's value has the type of its composition's inputs.
+        private <I> void arg( final TaskCompose<I> compose, final int argNum, final Object argValue )
+        {
+            compose.arg( argNum, (I) argValue );
+        }
+    }
+    
+    /**
+     * Send a heartbeat to the Space every HEARTBEAT_INTERVAL milliseconds.
+     */
+    private class Heartbeat extends Thread
+    {
+        Heartbeat() 
+        { 
+            super( "Computer heartbeat" ); 
+            setDaemon( true );
+        }
+        
+        @Override
+        public void run()
+        {
+            while ( ! isLeaving )
+            {
+                try 
+                { 
+                    Thread.sleep( Configuration.HEARTBEAT_INTERVAL );
+                    if ( ! space.heartbeat( computerId ) && ! isLeaving )
+                    {
+                        reset();
+                        computerId = space.register( ComputerImpl.this, numProcessors );
+                        Logger.getLogger( this.getClass().getName() )
+                              .log( Level.WARNING, "Computer: rejoined as computer {0}.", computerId );
+                    }
+                }
+                catch ( RemoteException exception )
+                {
+                    Logger.getLogger( this.getClass().getName() )
+                          .log( Level.WARNING, "Computer: heartbeat failed.", exception );
+                }
+                catch ( InterruptedException exception ) 
+                { 
+                    return;
+                }
+            }
+        }
+    }
+    
+    private class Worker extends Thread
+    {
+        @Override
+        public void run()
+        {
+            while ( true )
+            {
+                try 
+                { 
+                    resultQ.add( executeTask( readyTaskQ.take() ) );
+                }
+                catch ( InterruptedException exception ) 
+                { 
+                    Logger.getLogger( this.getClass().getName() )
+                          .log( Level.INFO, null, exception ); 
+                }
+            }
+        }
+    }
 }
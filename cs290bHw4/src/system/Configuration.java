@@ -29,6 +29,66 @@ package system;
  */
 public interface Configuration 
 {
-    static final public boolean SPACE_CALLABLE  = true;
     static final public boolean MULTI_COMPUTERS = true;
+    static final public boolean WORK_STEALING   = true;
+    
+    // A TaskCompose whose callCost is at most SPACE_CALL_COST_LIMIT is called
+    // on the Space, by one of its SPACE_CALL_THREADS threads; otherwise, it is
+    // sent to a Computer.
+    static final public long SPACE_CALL_COST_LIMIT = 1 << 10;
+    static final public int  SPACE_CALL_THREADS    = 2;
+    
+    // The Space keeps each job's ready tasks separately, taking them by job 
+    // priority, then by weighted fair share; within a job, tasks are work-stolen.
+    static final public boolean FAIR_SHARE = true;
+    
+    // The Space's ComputerProxy threads are virtual threads, when the Java 
+    // runtime has them.
+    static final public boolean VIRTUAL_PROXY_THREADS = true;
+    
+    // Computers connect to the Space by the NIO transport, on Space.NIO_PORT,
+    // instead of registering by RMI. Clients use RMI, regardless.
+    static final public boolean NIO_TRANSPORT = false;
+    
+    // Each Computer sends the Space a heartbeat every HEARTBEAT_INTERVAL 
+    // milliseconds. The Space unregisters a Computer from which it has heard
+    // nothing, neither heartbeat nor Return, for HEARTBEAT_TIMEOUT milliseconds.
+    static final public boolean HEARTBEATS         = true;
+    static final public long    HEARTBEAT_INTERVAL = 1000;
+    static final public long    HEARTBEAT_TIMEOUT  = 4000;
+    
+    // The Space journals its task DAG to JOURNAL_FILE, a memory-mapped file 
+    // of at least JOURNAL_SIZE bytes, which is compacted when it is full. A 
+    // restarted Space recovers its unfinished jobs from the journal.
+    static final public boolean JOURNAL      = false;
+    static final public String  JOURNAL_FILE = "space.journal";
+    static final public int     JOURNAL_SIZE = 1 << 26; // bytes
+    
+    // The Space caches the values of tasks that declare a cache key, and 
+    // dispatches at most one task per key. The cached values occupy at most
+    // RESULT_CACHE_SIZE bytes; a value larger than RESULT_CACHE_MAX_VALUE 
+    // bytes is not cached.
+    static final public boolean RESULT_CACHE           = true;
+    static final public long    RESULT_CACHE_SIZE      = 1 << 26; // bytes
+    static final public long    RESULT_CACHE_MAX_VALUE = 1 << 20; // bytes
+    
+    // Every SPECULATION_INTERVAL milliseconds, the Space looks for stragglers:
+    // tasks running for more than SPECULATION_FACTOR times their job's median
+    // task run time, and at least SPECULATION_MIN_TIME milliseconds. Each is 
+    // copied, and the copy made ready.
+    static final public boolean SPECULATION          = true;
+    static final public long    SPECULATION_FACTOR   = 4;
+    static final public long    SPECULATION_MIN_TIME = 100;
+    static final public long    SPECULATION_INTERVAL = 100;
+    
+    // A Computer computes each task at depth FORK_JOIN_DEPTH, or deeper, as a 
+    // whole subtree on its ForkJoinPool.
+    static final public boolean COMPUTER_FORK_JOIN = false;
+    static final public int     FORK_JOIN_DEPTH    = 4;
+    
+    // The Space adapts the granularity of tasks so that atomic tasks run for 
+    // between MIN_TASK_RUN_TIME and MAX_TASK_RUN_TIME milliseconds.
+    static final public boolean ADAPTIVE_GRANULARITY = true;
+    static final public long    MIN_TASK_RUN_TIME    = 10;
+    static final public long    MAX_TASK_RUN_TIME    = 100;
 }
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.Granularity;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Observes the run times of atomic tasks, per task class, and the cost of 
+ * dispatching tasks to Computers, and adapts the Granularity that the Space
+ * passes to each class's tasks: If the mean run time of its atomic tasks is 
+ * less than Configuration.MIN_TASK_RUN_TIME, or than DISPATCH_COST_FACTOR
+ * times the dispatch cost, their grain is coarsened by 1 level; if it exceeds
+ * Configuration.MAX_TASK_RUN_TIME, it is refined by 1 level.
+ * @author Peter Cappello
+ */
+public class GranularityMonitor 
+{
+    static final private int SAMPLES_PER_ADJUSTMENT = 16;
+    static final private int DISPATCH_COST_FACTOR = 10;
+    static final private int MAX_COARSENING = 16;
+    static final private double EWMA_WEIGHT = 0.125;
+    
+    final private Map<Class<?>, TaskClassMonitor> taskClassMonitors = new ConcurrentHashMap<>();
+    private volatile double dispatchCost; // milliseconds per task
+    
+    /**
+     *
+     * @param task about to be dispatched.
+     * @return the Granularity to be passed to the task's isAtomic method.
+     */
+    public Granularity granularity( final Task task )
+    {
+        final TaskClassMonitor taskClassMonitor = taskClassMonitors.get( task.getClass() );
+        return taskClassMonitor == null ? Granularity.DEFAULT : taskClassMonitor.granularity;
+    }
+    
+    /**
+     * Record the run time of an atomic task.
+     * @param task the atomic task.
+     * @param runTime its run time, in milliseconds.
+     */
+    public void taskRunTime( final Task task, final long runTime )
+    {
+        taskClassMonitors.computeIfAbsent( task.getClass(), TaskClassMonitor::new ).taskRunTime( runTime );
+    }
+    
+    /**
+     * Record the cost of dispatching a batch of tasks to a Computer.
+     * @param elapsedTime the time to dispatch the batch, in milliseconds.
+     * @param numTasks the number of tasks in the batch.
+     */
+    synchronized public void dispatchTime( final double elapsedTime, final int numTasks )
+    {
+        dispatchCost += EWMA_WEIGHT * ( elapsedTime / numTasks - dispatchCost );
+    }
+    
+    private class TaskClassMonitor
+    {
+        final private Class<?> taskClass;
+        private volatile Granularity granularity = Granularity.DEFAULT;
+        private int numSamples;
+        private long sumRunTimes;
+        
+        TaskClassMonitor( final Class<?> taskClass ) { this.taskClass = taskClass; }
+        
+        synchronized void taskRunTime( final long runTime )
+        {
+            sumRunTimes += runTime;
+            if ( ++numSamples < SAMPLES_PER_ADJUSTMENT )
+            {
+                return;
+            }
+            final double meanRunTime = (double) sumRunTimes / numSamples;
+            numSamples = 0;
+            sumRunTimes = 0;
+            final double minRunTime = Math.max( Configuration.MIN_TASK_RUN_TIME, DISPATCH_COST_FACTOR * dispatchCost );
+            int coarsening = granularity.coarsening();
+            if ( meanRunTime < minRunTime && coarsening < MAX_COARSENING )
+            {
+                coarsening++;
+            }
+            else if ( meanRunTime > Configuration.MAX_TASK_RUN_TIME && coarsening > -MAX_COARSENING )
+            {
+                coarsening--;
+            }
+            else
+            {
+                return;
+            }
+            granularity = new Granularity( coarsening );
+            Logger.getLogger( GranularityMonitor.class.getName() )
+                  .log( Level.FINE, "{0}: mean run time {1} ms; {2}", new Object[] { taskClass.getSimpleName(), meanRunTime, granularity } );
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.ReturnValue;
+import api.Shared;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The Space's record of a job: the queue of its results, partial and final,
+ * and its Shared value.
+ * @author Peter Cappello
+ */
+class Job 
+{
+    static final int NO_CHANNEL = 0;
+    static final private int NUM_TASK_RUN_TIMES = 64; // the most recent are kept.
+    static final private int MIN_TASK_RUN_TIMES = 8;  // for a median
+    
+    final private int id;
+    final private int channelId;
+    final private BlockingQueue<ReturnValue> resultQ;
+    private Shared shared;
+    final private long[] taskRunTimes = new long[ NUM_TASK_RUN_TIMES ]; // guarded by this
+    private int numTaskRunTimes; // guarded by this
+    private int nextTaskRunTime; // guarded by this
+    
+    Job( final int id ) 
+    { 
+        this.id = id; 
+        channelId = NO_CHANNEL;
+        resultQ = new LinkedBlockingQueue<>();
+    }
+    
+    /**
+     * 
+     * @param id the job's id.
+     * @param channel the Channel into whose queue the job's results are put.
+     */
+    Job( final int id, final Channel channel ) 
+    { 
+        this.id = id; 
+        channelId = channel.id();
+        resultQ = channel.resultQ();
+    }
+    
+    int id() { return id; }
+    
+    int channelId() { return channelId; }
+    
+    void putResult( final ReturnValue result ) { resultQ.add( result ); }
+    
+    ReturnValue takeResult() throws InterruptedException { return resultQ.take(); }
+    
+    synchronized Shared shared() { return shared; }
+    
+    /**
+     * Update this job's Shared value, if the given one is newer.
+     * @param shared the Shared value produced by some task of this job.
+     * @return true if and only if the Shared value was updated.
+     */
+    synchronized boolean shared( final Shared shared )
+    {
+        if ( ! shared.isNewerThan( this.shared ) )
+        {
+            return false;
+        }
+        this.shared = shared;
+        return true;
+    }
+    
+    /**
+     * Record the run time of one of this job's atomic tasks: a leaf of its DAG.
+     * @param taskRunTime in milliseconds.
+     */
+    synchronized void taskRunTime( final long taskRunTime )
+    {
+        taskRunTimes[ nextTaskRunTime ] = taskRunTime;
+        nextTaskRunTime = ( nextTaskRunTime + 1 ) % NUM_TASK_RUN_TIMES;
+        numTaskRunTimes = Math.min( numTaskRunTimes + 1, NUM_TASK_RUN_TIMES );
+    }
+    
+    /**
+     * 
+     * @return the median of the recent task run times, in milliseconds, or
+     * -1 if too few tasks have run.
+     */
+    synchronized long medianTaskRunTime()
+    {
+        if ( numTaskRunTimes < MIN_TASK_RUN_TIMES )
+        {
+            return -1;
+        }
+        final long[] recent = Arrays.copyOf( taskRunTimes, numTaskRunTimes );
+        Arrays.sort( recent );
+        return recent[ recent.length / 2 ];
+    }
+}
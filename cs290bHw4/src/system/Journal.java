@@ -0,0 +1,561 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.ReturnValue;
+import api.Shared;
+import api.TaskCompose;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only journal of the Space's task DAG, from which a restarted 
+ * Space recovers its unfinished jobs. It records each job's submission, each
+ * decomposition - its parent task is done; its composition waits; its 
+ * subtasks are ready - each value delivered to a composition or to the 
+ * client, each newer Shared value, and each job's finish. 
+ * 
+ * The Space's threads only enqueue records. The journal's thread takes all
+ * queued records, serializes them as one batch, and appends the batch to a 
+ * memory-mapped file: a 4-byte length, followed by the serialized records. 
+ * Writes are sequential, and the file is not forced, so the journal survives
+ * a crash of the Space's process, not of its host. The journal's thread 
+ * applies each record to its state: the unfinished jobs, their ready tasks, 
+ * and their waiting compositions. When the file is full, it is compacted: 
+ * The state is written, as a snapshot, to a new file, which replaces it.
+ * 
+ * A value is recorded after it is delivered. Then, a snapshot, which 
+ * serializes the Space's waiting compositions themselves, with the inputs 
+ * set so far, loses no input: An input set after it is serialized is 
+ * recorded after the snapshot. A duplicate input is ignored.
+ * @author Peter Cappello
+ */
+class Journal extends Thread
+{
+    // Record types
+    static final private byte JOB        = 1; // a job: its id, priority, weight, and task.
+    static final private byte DECOMPOSED = 2; // a decomposition: the parent's id, the composition, and the subtasks.
+    static final private byte VALUE      = 3; // a value: the id of the task whose value it is, and its ReturnValue.
+    static final private byte SHARED     = 4; // a job's newer Shared value.
+    static final private byte FINISHED   = 5; // a job's id, when its final value has been taken.
+    static final private byte READY      = 6; // a ready task, in a snapshot.
+    static final private byte WAITING    = 7; // a waiting composition, in a snapshot.
+    
+    static final private int MAGIC = 0x4a524e4c;
+    static final private int HEADER_SIZE = 3 * Integer.BYTES; // MAGIC, task id, job id
+    static final private int MAX_BATCH_SIZE = 1 << 10; // records
+    
+    final private Path path;
+    final private int minSize;
+    final private BlockingQueue<Record> recordQ = new LinkedBlockingQueue<>();
+    final private State state = new State();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    
+    /**
+     * 
+     * @param fileName the name of the journal's file.
+     * @param minSize the minimum size, in bytes, of the journal's file.
+     */
+    Journal( final String fileName, final int minSize )
+    {
+        super( "Space journal" );
+        setDaemon( true );
+        path = Paths.get( fileName );
+        this.minSize = minSize;
+    }
+    
+    /**
+     * Read the journal's file, if it exists, and replace it with a snapshot 
+     * of the state recovered. Invoked before the journal is started.
+     * @return the state recovered, whose tasks are to be given to the Space.
+     * @throws IOException
+     */
+    State recover() throws IOException
+    {
+        if ( Files.exists( path ) )
+        {
+            try ( FileChannel file = FileChannel.open( path, StandardOpenOption.READ ) )
+            {
+                replay( file.map( FileChannel.MapMode.READ_ONLY, 0, file.size() ) );
+            }
+            catch ( ClassNotFoundException exception )
+            {
+                throw new IOException( "Journal names an unknown class.", exception );
+            }
+        }
+        state.isReplaying = false;
+        compact();
+        return state;
+    }
+    
+    void job( final int jobId, final int priority, final int weight, final Task task )
+    {
+        final Record record = new Record( JOB, jobId );
+        record.priority = priority;
+        record.weight = weight;
+        record.task = task;
+        recordQ.add( record );
+    }
+    
+    void decomposition( final Task parentTask, final TaskCompose compose, final List<Task> tasks )
+    {
+        final Record record = new Record( DECOMPOSED, parentTask.id() );
+        record.compose = compose;
+        record.tasks = tasks;
+        recordQ.add( record );
+    }
+    
+    void value( final Task task, final ReturnValue value )
+    {
+        final Record record = new Record( VALUE, task.id() );
+        record.value = value;
+        recordQ.add( record );
+    }
+    
+    void shared( final int jobId, final Shared shared )
+    {
+        final Record record = new Record( SHARED, jobId );
+        record.shared = shared;
+        recordQ.add( record );
+    }
+    
+    void finished( final int jobId ) { recordQ.add( new Record( FINISHED, jobId ) ); }
+    
+    @Override
+    public void run()
+    {
+        final List<Record> records = new ArrayList<>();
+        while ( true )
+        {
+            try 
+            {
+                records.add( recordQ.take() );
+                recordQ.drainTo( records, MAX_BATCH_SIZE - 1 );
+                final byte[] batch = encode( records );
+                records.forEach( state::apply );
+                if ( buffer.remaining() < Integer.BYTES + batch.length )
+                {
+                    compact(); // the snapshot includes the batch.
+                }
+                else
+                {
+                    append( buffer, batch );
+                }
+            }
+            catch ( IOException exception )
+            {
+                Logger.getLogger( Journal.class.getName() )
+                      .log( Level.SEVERE, "Journal write failed.", exception );
+            }
+            catch ( InterruptedException exception )
+            {
+                return;
+            }
+            records.clear();
+        }
+    }
+    
+    /**
+     * Apply each batch of records in the mapped file to the state. A batch 
+     * whose length was not written, when the Space crashed, ends the journal.
+     * @param mappedFile
+     * @throws IOException
+     * @throws ClassNotFoundException 
+     */
+    private void replay( final MappedByteBuffer mappedFile ) throws IOException, ClassNotFoundException
+    {
+        if ( mappedFile.remaining() < HEADER_SIZE || mappedFile.getInt() != MAGIC )
+        {
+            throw new IOException( "Not a journal: " + path );
+        }
+        state.maxTaskId = mappedFile.getInt();
+        state.maxJobId = mappedFile.getInt();
+        while ( mappedFile.remaining() >= Integer.BYTES )
+        {
+            final int length = mappedFile.getInt();
+            if ( length <= 0 || length > mappedFile.remaining() )
+            {
+                break;
+            }
+            final byte[] batch = new byte[ length ];
+            mappedFile.get( batch );
+            try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( batch ) ) )
+            {
+                for ( int numRecords = in.readInt(); numRecords > 0; numRecords-- )
+                {
+                    state.apply( Record.read( in ) );
+                }
+            }
+        }
+        state.purge();
+    }
+    
+    /**
+     * Write a snapshot of the state to a new file, at least twice its size, 
+     * which replaces the journal's file.
+     * @throws IOException 
+     */
+    private void compact() throws IOException
+    {
+        state.purge();
+        final List<byte[]> batches = new ArrayList<>();
+        final List<Record> records = new ArrayList<>();
+        int snapshotSize = HEADER_SIZE;
+        for ( Record record : state.snapshot() )
+        {
+            records.add( record );
+            if ( records.size() == MAX_BATCH_SIZE )
+            {
+                batches.add( encode( records ) );
+                records.clear();
+            }
+        }
+        batches.add( encode( records ) );
+        for ( byte[] batch : batches )
+        {
+            snapshotSize += Integer.BYTES + batch.length;
+        }
+        int size = minSize;
+        while ( size / 2 < snapshotSize )
+        {
+            size *= 2;
+        }
+        final Path compactPath = Paths.get( path + ".compact" );
+        Files.deleteIfExists( compactPath );
+        final FileChannel compactChannel = FileChannel.open( compactPath, 
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE );
+        final MappedByteBuffer compactBuffer = compactChannel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+        compactBuffer.putInt( MAGIC ).putInt( state.maxTaskId ).putInt( state.maxJobId );
+        for ( byte[] batch : batches )
+        {
+            append( compactBuffer, batch );
+        }
+        compactBuffer.force();
+        Files.move( compactPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        if ( channel != null )
+        {
+            channel.close();
+        }
+        channel = compactChannel;
+        buffer = compactBuffer;
+        Logger.getLogger( Journal.class.getName() )
+              .log( Level.FINE, "Journal compacted: {0} bytes.", snapshotSize );
+    }
+    
+    /**
+     * Append a batch: its bytes, then its length, so that a batch whose 
+     * length is written is whole.
+     * @param buffer the mapped file.
+     * @param batch 
+     */
+    static private void append( final MappedByteBuffer buffer, final byte[] batch )
+    {
+        final int position = buffer.position();
+        buffer.position( position + Integer.BYTES );
+        buffer.put( batch );
+        buffer.putInt( position, batch.length );
+    }
+    
+    static private byte[] encode( final List<Record> records ) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeInt( records.size() );
+            for ( Record record : records )
+            {
+                record.write( out );
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * A journal record. Its type determines which of its fields are set.
+     */
+    static private class Record
+    {
+        final private byte type;
+        final private int id; // a job's id or a task's id, according to the type.
+        private int priority;
+        private int weight;
+        private Task task;
+        private TaskCompose compose;
+        private List<Task> tasks;
+        private ReturnValue value;
+        private Shared shared;
+        
+        Record( final byte type, final int id )
+        {
+            this.type = type;
+            this.id = id;
+        }
+        
+        void write( final ObjectOutput out ) throws IOException
+        {
+            out.writeByte( type );
+            out.writeInt( id );
+            switch ( type )
+            {
+                case JOB:
+                    out.writeInt( priority );
+                    out.writeInt( weight );
+                    out.writeObject( task );
+                    break;
+                case DECOMPOSED:
+                    out.writeObject( compose );
+                    out.writeInt( tasks.size() );
+                    for ( Task subtask : tasks )
+                    {
+                        out.writeObject( subtask );
+                    }
+                    break;
+                case VALUE:
+                    out.writeObject( value );
+                    break;
+                case SHARED:
+                    out.writeObject( shared );
+                    break;
+                case READY:
+                    out.writeObject( task );
+                    break;
+                case WAITING:
+                    out.writeObject( compose );
+                    break;
+                default: // FINISHED
+            }
+        }
+        
+        static Record read( final ObjectInput in ) throws IOException, ClassNotFoundException
+        {
+            final Record record = new Record( in.readByte(), in.readInt() );
+            switch ( record.type )
+            {
+                case JOB:
+                    record.priority = in.readInt();
+                    record.weight = in.readInt();
+                    record.task = (Task) in.readObject();
+                    break;
+                case DECOMPOSED:
+                    record.compose = (TaskCompose) in.readObject();
+                    final int numTasks = in.readInt();
+                    record.tasks = new ArrayList<>( numTasks );
+                    for ( int i = 0; i < numTasks; i++ )
+                    {
+                        record.tasks.add( (Task) in.readObject() );
+                    }
+                    break;
+                case VALUE:
+                    record.value = (ReturnValue) in.readObject();
+                    break;
+                case SHARED:
+                    record.shared = (Shared) in.readObject();
+                    break;
+                case READY:
+                    record.task = (Task) in.readObject();
+                    break;
+                case WAITING:
+                    record.compose = (TaskCompose) in.readObject();
+                    break;
+                case FINISHED:
+                    break;
+                default:
+                    throw new IOException( "Unexpected record type: " + record.type );
+            }
+            return record;
+        }
+    }
+    
+    /**
+     * The state of a job, as recorded.
+     */
+    static class JobState
+    {
+        final int priority;
+        final int weight;
+        Shared shared;
+        ReturnValue finalValue; // until it is taken
+        
+        JobState( final int priority, final int weight )
+        {
+            this.priority = priority;
+            this.weight = weight;
+        }
+    }
+    
+    /**
+     * The unfinished jobs, their ready tasks, including those in flight, and
+     * their waiting compositions. While the journal is written, the tasks and
+     * compositions are the Space's own, and a value is not set as an input 
+     * of its composition, which the Space has done already. While the journal
+     * is replayed, they are copies, whose inputs are set.
+     */
+    static class State
+    {
+        final Map<Integer, JobState> jobs = new HashMap<>();
+        final Map<Integer, Task> readyTasks = new HashMap<>();
+        final Map<Integer, TaskCompose> composes = new HashMap<>();
+        int maxTaskId;
+        int maxJobId;
+        private boolean isReplaying = true;
+        
+        @SuppressWarnings( "unchecked" )
+        private void apply( final Record record )
+        {
+            switch ( record.type )
+            {
+                case JOB:
+                    jobs.put( record.id, new JobState( record.priority, record.weight ) );
+                    maxJobId = Math.max( maxJobId, record.id );
+                    if ( record.task != null )
+                    {
+                        ready( record.task );
+                    }
+                    break;
+                case DECOMPOSED:
+                    readyTasks.remove( record.id );
+                    waiting( record.compose );
+                    record.tasks.forEach( this::ready );
+                    break;
+                case VALUE:
+                    readyTasks.remove( record.id );
+                    composes.remove( record.id );
+                    if ( record.value.isFinal() )
+                    {
+                        final JobState job = jobs.get( record.value.jobId() );
+                        if ( job != null )
+                        {
+                            job.finalValue = record.value;
+                        }
+                    }
+                    else if ( isReplaying )
+                    {
+                        final TaskCompose compose = composes.get( record.value.composeId() );
+                        if ( compose != null ) // else, it was called before the value was recorded.
+                        {
+                            compose.arg( record.value.composeArgNum(), record.value.value() );
+                        }
+                    }
+                    break;
+                case SHARED:
+                    final JobState job = jobs.get( record.id );
+                    if ( job != null && record.shared.isNewerThan( job.shared ) )
+                    {
+                        job.shared = record.shared;
+                    }
+                    break;
+                case FINISHED:
+                    jobs.remove( record.id );
+                    break;
+                case READY:
+                    ready( record.task );
+                    break;
+                case WAITING:
+                    waiting( record.compose );
+                    break;
+                default:
+                    assert false;
+            }
+        }
+        
+        private void ready( final Task task )
+        {
+            readyTasks.put( task.id(), task );
+            maxTaskId = Math.max( maxTaskId, task.id() );
+        }
+        
+        private void waiting( final TaskCompose compose )
+        {
+            composes.put( compose.id(), compose );
+            maxTaskId = Math.max( maxTaskId, compose.id() );
+        }
+        
+        /**
+         * Remove the tasks of finished jobs.
+         */
+        private void purge()
+        {
+            readyTasks.values().removeIf( task -> ! jobs.containsKey( task.jobId() ) );
+            composes.values().removeIf( compose -> ! jobs.containsKey( compose.jobId() ) );
+        }
+        
+        private List<Record> snapshot()
+        {
+            final List<Record> records = new ArrayList<>();
+            jobs.forEach( ( jobId, job ) -> 
+            {
+                final Record jobRecord = new Record( JOB, jobId );
+                jobRecord.priority = job.priority;
+                jobRecord.weight = job.weight;
+                records.add( jobRecord );
+                if ( job.shared != null )
+                {
+                    final Record sharedRecord = new Record( SHARED, jobId );
+                    sharedRecord.shared = job.shared;
+                    records.add( sharedRecord );
+                }
+                if ( job.finalValue != null )
+                {
+                    final Record valueRecord = new Record( VALUE, job.finalValue.taskId() );
+                    valueRecord.value = job.finalValue;
+                    records.add( valueRecord );
+                }
+            });
+            readyTasks.values().forEach( task -> 
+            {
+                final Record record = new Record( READY, task.id() );
+                record.task = task;
+                records.add( record );
+            });
+            composes.values().forEach( compose -> 
+            {
+                final Record record = new Record( WAITING, compose.id() );
+                record.compose = compose;
+                records.add( record );
+            });
+            return records;
+        }
+    }
+}
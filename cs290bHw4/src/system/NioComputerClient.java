@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.Shared;
+import api.Space;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Computer side of the NIO transport: a ComputerImpl, connected to a 
+ * NioComputerServer by one persistent, blocking channel. Its main thread 
+ * reads TASKS and DOWN_SHARED frames, putting them into the ComputerImpl; its
+ * ResultSender thread takes the ComputerImpl's results, and sends them as
+ * RESULTS frames. Shared values that tasks produce are sent as UP_SHARED 
+ * frames. Its Heartbeat thread sends HEARTBEAT frames. When the connection is
+ * closed, e.g., because the Space unregistered this Computer, it discards its
+ * queued tasks and Returns, reconnects, and rejoins; when it leaves, it sends
+ * a LEAVE frame, and waits until the Space, having drained it, closes the 
+ * connection.
+ * @author Peter Cappello
+ */
+public class NioComputerClient implements ComputerImpl.SpaceLink
+{
+    final private String domainName;
+    final private int port;
+    final private int numWorkers;
+    final private ComputerImpl computer;
+    final private CountDownLatch isStopped = new CountDownLatch( 1 );
+    private volatile NioConnection connection;
+    private volatile boolean isLeaving;
+    
+    /**
+     *
+     * @param domainName the domain name of the Space's host.
+     * @param port the port on which the Space's NioComputerServer listens.
+     * @param numWorkers the number of Worker threads that execute tasks.
+     * @throws IOException
+     */
+    public NioComputerClient( final String domainName, final int port, final int numWorkers ) throws IOException
+    {
+        this.domainName = domainName;
+        this.port = port;
+        this.numWorkers = numWorkers;
+        computer = new ComputerImpl( this, numWorkers );
+        connect();
+    }
+    
+    public static void main( String[] args ) throws Exception
+    {
+        final String domainName = args.length == 0 ? "localhost" : args[ 0 ];
+        final NioComputerClient client = new NioComputerClient( domainName, Space.NIO_PORT, Runtime.getRuntime().availableProcessors() );
+        Runtime.getRuntime().addShutdownHook( new Thread( client::leave ) );
+        client.run();
+        System.exit( 0 ); // It left the Space.
+    }
+    
+    /**
+     * Serve the Space, reconnecting whenever the connection is closed, until 
+     * this Computer leaves.
+     */
+    public void run()
+    {
+        new ResultSender().start();
+        if ( Configuration.HEARTBEATS )
+        {
+            new Heartbeat().start();
+        }
+        while ( true )
+        {
+            serve();
+            if ( isLeaving )
+            {
+                isStopped.countDown();
+                return;
+            }
+            computer.reset();
+            reconnect();
+        }
+    }
+    
+    /**
+     * Leave the Space: Return when it has drained this Computer, and closed
+     * the connection.
+     */
+    public void leave()
+    {
+        isLeaving = true;
+        try 
+        { 
+            send( NioConnection.LEAVE, out -> {} ); 
+            isStopped.await();
+        }
+        catch ( RemoteException | InterruptedException exception ) {} // the Space makes its tasks ready again.
+    }
+    
+    private void connect() throws IOException
+    {
+        final SocketChannel channel = SocketChannel.open( new InetSocketAddress( domainName, port ) );
+        channel.socket().setTcpNoDelay( true );
+        connection = new NioConnection( channel );
+        send( NioConnection.HELLO, out -> out.writeInt( numWorkers ) );
+    }
+    
+    private void reconnect()
+    {
+        while ( true )
+        {
+            try 
+            { 
+                Thread.sleep( Configuration.HEARTBEAT_INTERVAL );
+                connect();
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.INFO, "Reconnected to the Space." );
+                return;
+            }
+            catch ( IOException exception ) 
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Reconnection failed.", exception );
+            }
+            catch ( InterruptedException exception ) {}
+        }
+    }
+    
+    /**
+     * Read frames until the connection is closed.
+     */
+    private void serve()
+    {
+        final NioConnection connection = this.connection;
+        try
+        {
+            while ( true )
+            {
+                final byte[] frame = connection.readFrame();
+                final ObjectInput in = NioConnection.decode( frame );
+                switch ( NioConnection.type( frame ) )
+                {
+                    case NioConnection.TASKS:
+                        final int numTasks = in.readInt();
+                        final List<Task> tasks = new ArrayList<>( numTasks );
+                        for ( int i = 0; i < numTasks; i++ )
+                        {
+                            tasks.add( (Task) in.readObject() );
+                        }
+                        computer.putTasks( tasks );
+                        break;
+                    case NioConnection.DOWN_SHARED:
+                        final int jobId = in.readInt();
+                        computer.downShared( jobId, (Shared) in.readObject() );
+                        break;
+                    default:
+                        throw new IOException( "Unexpected message type: " + NioConnection.type( frame ) );
+                }
+            }
+        }
+        catch ( IOException | ClassNotFoundException exception )
+        {
+            if ( ! isLeaving )
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Space connection closed.", exception );
+            }
+        }
+        connection.close();
+    }
+
+    @Override
+    public void upShared( final int jobId, final Shared shared ) throws RemoteException 
+    {
+        send( NioConnection.UP_SHARED, out -> 
+        {
+            out.writeInt( jobId );
+            out.writeObject( shared );
+        });
+    }
+    
+    private void send( final byte type, final NioConnection.Encoder encoder ) throws RemoteException
+    {
+        final NioConnection connection = this.connection;
+        try 
+        { 
+            final byte[] frame = NioConnection.encode( type, encoder );
+            synchronized ( connection )
+            {
+                connection.enqueue( frame );
+                connection.flush();
+            }
+        }
+        catch ( IOException exception )
+        {
+            throw new RemoteException( "Send failed.", exception );
+        }
+    }
+    
+    private class ResultSender extends Thread
+    {
+        ResultSender()
+        {
+            super( "NioComputerClient ResultSender" );
+            setDaemon( true );
+        }
+        
+        @Override
+        public void run()
+        {
+            while ( true )
+            {
+                try
+                {
+                    final List<Return> results = computer.takeResults();
+                    send( NioConnection.RESULTS, out -> 
+                    {
+                        out.writeInt( results.size() );
+                        for ( Return result : results )
+                        {
+                            out.writeObject( result );
+                        }
+                    });
+                }
+                catch ( RemoteException exception ) {} // the connection is closed: The Space makes their tasks ready again.
+            }
+        }
+    }
+    
+    private class Heartbeat extends Thread
+    {
+        Heartbeat()
+        {
+            super( "NioComputerClient Heartbeat" );
+            setDaemon( true );
+        }
+        
+        @Override
+        public void run()
+        {
+            while ( ! isLeaving )
+            {
+                try 
+                { 
+                    Thread.sleep( Configuration.HEARTBEAT_INTERVAL );
+                    send( NioConnection.HEARTBEAT, out -> {} );
+                }
+                catch ( RemoteException exception ) {} // the connection is closed: It is reconnecting.
+                catch ( InterruptedException exception ) 
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
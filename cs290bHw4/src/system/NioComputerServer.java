@@ -0,0 +1,406 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.Shared;
+import api.Space;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Space side of the NIO transport. One thread multiplexes the 
+ * connections of all NioComputerClient objects, with a Selector. Each 
+ * connection is registered with the Space as a Computer, whose ComputerProxy
+ * sees no difference from an RMI Computer: Its calls send frames without 
+ * waiting for a reply, except takeResults, which waits for a RESULTS frame.
+ * Frames are encoded and decoded by the ComputerProxy threads, not by the 
+ * Selector thread. Requests that call the Space, which may wait, e.g., for
+ * upShared to reach an RMI Computer, are handled by request threads, so that
+ * they do not stall I/O for the other Computers. A connection is closed if its Computer's heartbeat is 
+ * rejected, so that its NioComputerClient reconnects, and rejoins.
+ * @author Peter Cappello
+ */
+public class NioComputerServer extends Thread
+{
+    final private Space space;
+    final private Selector selector;
+    final private ServerSocketChannel serverChannel;
+    final private Queue<NioComputer> writers = new ConcurrentLinkedQueue<>();
+    final private ExecutorService requests = Executors.newCachedThreadPool( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "NioComputerServer request" );
+        thread.setDaemon( true );
+        return thread;
+    });
+    
+    /**
+     *
+     * @param space the Space with which connecting Computers are registered.
+     * @param port the port on which Computers connect.
+     * @throws IOException
+     */
+    public NioComputerServer( final Space space, final int port ) throws IOException
+    {
+        super( "NioComputerServer" );
+        setDaemon( true );
+        this.space = space;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind( new InetSocketAddress( port ) );
+        serverChannel.configureBlocking( false );
+        serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+        Logger.getLogger( getClass().getName() )
+              .log( Level.INFO, "NIO transport listening on port {0}.", Integer.toString( port ) );
+    }
+    
+    @Override
+    public void run()
+    {
+        try
+        {
+            while ( selector.isOpen() )
+            {
+                selector.select();
+                for ( NioComputer computer = writers.poll(); computer != null; computer = writers.poll() )
+                {
+                    computer.write();
+                }
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while ( keys.hasNext() )
+                {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if ( ! key.isValid() )
+                    {
+                        continue;
+                    }
+                    if ( key.isAcceptable() )
+                    {
+                        accept();
+                        continue;
+                    }
+                    final NioComputer computer = (NioComputer) key.attachment();
+                    if ( key.isWritable() )
+                    {
+                        computer.write();
+                    }
+                    if ( key.isValid() && key.isReadable() )
+                    {
+                        computer.read();
+                    }
+                }
+            }
+        }
+        catch ( IOException | ClosedSelectorException exception )
+        {
+            Logger.getLogger( getClass().getName() ).log( Level.SEVERE, null, exception );
+        }
+    }
+    
+    /**
+     * Stop accepting Computers, and close their connections.
+     */
+    public void close()
+    {
+        requests.shutdown();
+        try 
+        { 
+            serverChannel.close();
+            for ( SelectionKey key : selector.keys() )
+            {
+                if ( key.attachment() instanceof NioComputer )
+                {
+                    ( (NioComputer) key.attachment() ).close();
+                }
+            }
+            selector.close();
+        }
+        catch ( IOException | ClosedSelectorException exception ) {} // closing anyway
+    }
+    
+    private void accept() throws IOException
+    {
+        final SocketChannel channel = serverChannel.accept();
+        if ( channel == null )
+        {
+            return;
+        }
+        channel.configureBlocking( false );
+        channel.socket().setTcpNoDelay( true );
+        final NioComputer computer = new NioComputer( new NioConnection( channel ) );
+        computer.key = channel.register( selector, SelectionKey.OP_READ, computer );
+    }
+    
+    /**
+     * A connected Computer, as seen by its ComputerProxy.
+     */
+    private class NioComputer implements Computer
+    {
+        // A frame that signals, to takeResults, that the connection is closed.
+        final private byte[] closed = new byte[ 0 ];
+        
+        final private NioConnection connection;
+        final private BlockingQueue<byte[]> resultFrames = new LinkedBlockingQueue<>();
+        private SelectionKey key;
+        private volatile int computerId = -1; // until it is registered
+        private volatile boolean isOpen = true;
+        
+        NioComputer( final NioConnection connection ) { this.connection = connection; }
+
+        @Override
+        public Return execute( final Task task ) throws RemoteException 
+        {
+            throw new RemoteException( "The NIO transport pipelines tasks: use putTasks." );
+        }
+
+        @Override
+        public void putTasks( final List<Task> tasks ) throws RemoteException 
+        {
+            send( NioConnection.TASKS, out -> 
+            {
+                out.writeInt( tasks.size() );
+                for ( Task task : tasks )
+                {
+                    out.writeObject( task );
+                }
+            });
+        }
+
+        @Override
+        public List<Return> takeResults() throws RemoteException 
+        {
+            final List<byte[]> frames = new ArrayList<>();
+            try { frames.add( resultFrames.take() ); }
+            catch ( InterruptedException exception )
+            {
+                throw new RemoteException( "Interrupted while taking results.", exception );
+            }
+            resultFrames.drainTo( frames );
+            final List<Return> results = new ArrayList<>();
+            for ( byte[] frame : frames )
+            {
+                if ( frame == closed )
+                {
+                    resultFrames.add( closed );
+                    throw new RemoteException( "Computer connection closed." );
+                }
+                try
+                {
+                    final ObjectInput in = NioConnection.decode( frame );
+                    for ( int numResults = in.readInt(); numResults > 0; numResults-- )
+                    {
+                        results.add( (Return) in.readObject() );
+                    }
+                }
+                catch ( IOException | ClassNotFoundException exception )
+                {
+                    close();
+                    throw new RemoteException( "Malformed results.", exception );
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public void downShared( final int jobId, final Shared shared ) throws RemoteException 
+        {
+            send( NioConnection.DOWN_SHARED, out -> 
+            {
+                out.writeInt( jobId );
+                out.writeObject( shared );
+            });
+        }
+        
+        private void send( final byte type, final NioConnection.Encoder encoder ) throws RemoteException
+        {
+            if ( ! isOpen )
+            {
+                throw new RemoteException( "Computer connection closed." );
+            }
+            try { connection.enqueue( NioConnection.encode( type, encoder ) ); }
+            catch ( IOException exception )
+            {
+                throw new RemoteException( "Message encoding failed.", exception );
+            }
+            writers.add( this );
+            selector.wakeup();
+        }
+        
+        /**
+         * Write queued frames; if the channel is full, wait until it is writable.
+         * Invoked by the Selector thread.
+         */
+        private void write()
+        {
+            if ( ! isOpen )
+            {
+                return;
+            }
+            try 
+            { 
+                key.interestOps( connection.flush() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+            }
+            catch ( IOException exception )
+            {
+                close();
+            }
+        }
+        
+        /**
+         * Read available frames. Invoked by the Selector thread.
+         */
+        private void read()
+        {
+            try
+            {
+                for ( byte[] frame = connection.readFrame(); frame != null; frame = connection.readFrame() )
+                {
+                    if ( ! read( frame ) )
+                    {
+                        return;
+                    }
+                }
+            }
+            catch ( IOException exception )
+            {
+                close();
+            }
+        }
+        
+        /**
+         * Handle a frame. Invoked by the Selector thread.
+         * @param frame a frame read from the Computer.
+         * @return false if and only if the connection is closed.
+         * @throws IOException if the frame's type is unexpected.
+         */
+        private boolean read( final byte[] frame ) throws IOException
+        {
+            switch ( NioConnection.type( frame ) )
+            {
+                case NioConnection.RESULTS:
+                    resultFrames.add( frame );
+                    break;
+                case NioConnection.HELLO:
+                    request( () -> computerId = space.register( this, NioConnection.decode( frame ).readInt() ) );
+                    break;
+                case NioConnection.HEARTBEAT:
+                    if ( computerId >= 0 && ! space.heartbeat( computerId ) ) // unless its HELLO is pending
+                    {
+                        close();
+                        return false;
+                    }
+                    break;
+                case NioConnection.LEAVE:
+                    leave();
+                    break;
+                case NioConnection.UP_SHARED:
+                    request( () -> 
+                    {
+                        final ObjectInput in = NioConnection.decode( frame );
+                        final int jobId = in.readInt();
+                        space.upShared( jobId, (Shared) in.readObject() );
+                    });
+                    break;
+                default:
+                    throw new IOException( "Unexpected message type: " + NioConnection.type( frame ) );
+            }
+            return true;
+        }
+        
+        /**
+         * Handle a request on a request thread. If it fails, the connection 
+         * is closed.
+         * @param request decodes a frame, and calls the Space.
+         */
+        private void request( final Request request )
+        {
+            try
+            {
+                requests.execute( () -> 
+                {
+                    try { request.run(); }
+                    catch ( IOException | ClassNotFoundException exception )
+                    {
+                        close();
+                    }
+                });
+            }
+            catch ( RejectedExecutionException exception )
+            {
+                close(); // the server is closed.
+            }
+        }
+        
+        /**
+         * Deregister this Computer, on a request thread, since deregistering
+         * waits until it is drained; then, close the connection.
+         */
+        private void leave()
+        {
+            request( () -> 
+            {
+                try { space.deregister( this ); }
+                catch ( RemoteException exception ) {} // closing anyway
+                close();
+            });
+        }
+        
+        synchronized private void close()
+        {
+            if ( isOpen )
+            {
+                isOpen = false;
+                connection.close();
+                resultFrames.add( closed ); // its ComputerProxy unregisters it.
+            }
+        }
+    }
+    
+    /**
+     * A request from a Computer, which is handled by a request thread.
+     */
+    private interface Request
+    {
+        void run() throws IOException, ClassNotFoundException;
+    }
+}
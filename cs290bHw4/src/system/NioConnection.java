@@ -0,0 +1,238 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A persistent connection between a Space and a Computer, over which 
+ * messages are sent as frames: a 4-byte length, followed by a type byte and 
+ * the message's serialized payload. Frames are encoded and decoded by the 
+ * threads that send and receive the messages; the connection only copies 
+ * frames between byte arrays and its direct buffers. Outgoing frames are 
+ * queued, and written as many per write as fit, so that messages are 
+ * pipelined. The connection works in blocking and in non-blocking mode.
+ * @author Peter Cappello
+ */
+class NioConnection 
+{
+    // Message types
+    static final byte HELLO       = 1; // Computer -> Space: its number of processors.
+    static final byte TASKS       = 2; // Space -> Computer: a batch of tasks.
+    static final byte RESULTS     = 3; // Computer -> Space: a batch of Returns.
+    static final byte DOWN_SHARED = 4; // Space -> Computer: a job's Shared value.
+    static final byte UP_SHARED   = 5; // Computer -> Space: a job's Shared value.
+    static final byte HEARTBEAT   = 6; // Computer -> Space: it is alive.
+    static final byte LEAVE       = 7; // Computer -> Space: drain it; then, close the connection.
+    
+    static final private int BUFFER_SIZE = 1 << 16;
+    static final private int MAX_FRAME_SIZE = 1 << 28;
+    
+    final private SocketChannel channel;
+    final private Queue<byte[]> writeQueue = new ConcurrentLinkedQueue<>();
+    final private ByteBuffer writeBuffer = ByteBuffer.allocateDirect( BUFFER_SIZE ); // write mode
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect( BUFFER_SIZE ); // write mode
+    private byte[] pendingFrame; // partially copied into writeBuffer
+    private int pendingOffset;
+    
+    NioConnection( final SocketChannel channel ) { this.channel = channel; }
+    
+    SocketChannel channel() { return channel; }
+    
+    /**
+     * Writes a message's payload.
+     */
+    interface Encoder { void write( ObjectOutput out ) throws IOException; }
+    
+    /**
+     * 
+     * @param type the message type.
+     * @param encoder writes the message's payload.
+     * @return the frame, including its length.
+     * @throws IOException 
+     */
+    static byte[] encode( final byte type, final Encoder encoder ) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream header = new DataOutputStream( bytes );
+        header.writeInt( 0 ); // length, set below
+        header.writeByte( type );
+        final ObjectOutputStream out = new ObjectOutputStream( bytes );
+        encoder.write( out );
+        out.close();
+        final byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap( frame ).putInt( frame.length - Integer.BYTES );
+        return frame;
+    }
+    
+    /**
+     * 
+     * @param frame a frame returned by readFrame.
+     * @return the frame's message type.
+     */
+    static byte type( final byte[] frame ) { return frame[ 0 ]; }
+    
+    /**
+     * 
+     * @param frame a frame returned by readFrame.
+     * @return an input stream of the frame's payload.
+     * @throws IOException 
+     */
+    static ObjectInput decode( final byte[] frame ) throws IOException
+    {
+        return new ObjectInputStream( new ByteArrayInputStream( frame, 1, frame.length - 1 ) );
+    }
+    
+    /**
+     * Queue a frame to be written by flush.
+     * @param frame 
+     */
+    void enqueue( final byte[] frame ) { writeQueue.add( frame ); }
+    
+    /**
+     * Write queued frames, until all are written, or, in non-blocking mode, 
+     * the channel accepts no more bytes. Only 1 thread at a time may flush.
+     * @return true if and only if all queued frames have been written.
+     * @throws IOException 
+     */
+    boolean flush() throws IOException
+    {
+        while ( true )
+        {
+            while ( writeBuffer.hasRemaining() )
+            {
+                if ( pendingFrame == null )
+                {
+                    pendingFrame = writeQueue.poll();
+                    pendingOffset = 0;
+                    if ( pendingFrame == null )
+                    {
+                        break;
+                    }
+                }
+                final int length = Math.min( writeBuffer.remaining(), pendingFrame.length - pendingOffset );
+                writeBuffer.put( pendingFrame, pendingOffset, length );
+                pendingOffset += length;
+                if ( pendingOffset == pendingFrame.length )
+                {
+                    pendingFrame = null;
+                }
+            }
+            writeBuffer.flip();
+            if ( ! writeBuffer.hasRemaining() )
+            {
+                writeBuffer.clear();
+                return true;
+            }
+            channel.write( writeBuffer );
+            final boolean isStalled = writeBuffer.hasRemaining();
+            writeBuffer.compact();
+            if ( isStalled )
+            {
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Read the next frame. Only 1 thread at a time may read.
+     * @return the frame, without its length; in non-blocking mode, null if 
+     * no complete frame is available.
+     * @throws IOException if the connection is closed or the frame is malformed.
+     */
+    byte[] readFrame() throws IOException
+    {
+        while ( true )
+        {
+            final byte[] frame = nextFrame();
+            if ( frame != null )
+            {
+                return frame;
+            }
+            if ( ! readBuffer.hasRemaining() )
+            {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect( 2 * readBuffer.capacity() );
+                readBuffer.flip();
+                buffer.put( readBuffer );
+                readBuffer = buffer;
+            }
+            final int numBytes = channel.read( readBuffer );
+            if ( numBytes < 0 )
+            {
+                throw new EOFException( "Connection closed." );
+            }
+            if ( numBytes == 0 )
+            {
+                return null;
+            }
+        }
+    }
+    
+    void close()
+    {
+        try { channel.close(); }
+        catch ( IOException exception ) {} // closing anyway
+    }
+    
+    private byte[] nextFrame() throws IOException
+    {
+        readBuffer.flip();
+        try
+        {
+            if ( readBuffer.remaining() < Integer.BYTES )
+            {
+                return null;
+            }
+            final int length = readBuffer.getInt( readBuffer.position() );
+            if ( length <= 0 || length > MAX_FRAME_SIZE )
+            {
+                throw new IOException( "Malformed frame length: " + length );
+            }
+            if ( readBuffer.remaining() < Integer.BYTES + length )
+            {
+                return null;
+            }
+            readBuffer.getInt();
+            final byte[] frame = new byte[ length ];
+            readBuffer.get( frame );
+            return frame;
+        }
+        finally
+        {
+            readBuffer.compact();
+        }
+    }
+}
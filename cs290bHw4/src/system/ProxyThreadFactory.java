@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes the threads of the Space's ComputerProxy objects, which spend nearly
+ * all their time blocked in remote calls. When the Java runtime has virtual
+ * threads, and they are configured, they are used, so that the Space's memory 
+ * for thread stacks does not grow with its number of Computers. Otherwise,
+ * daemon platform threads with small stacks are used. Since the source level 
+ * predates virtual threads, they are made reflectively.
+ * @author Peter Cappello
+ */
+class ProxyThreadFactory implements ThreadFactory
+{
+    static final private long PLATFORM_STACK_SIZE = 256 * 1024; // bytes
+    
+    final private Object virtualThreadBuilder; // null when using platform threads
+    final private Method unstarted;
+    
+    ProxyThreadFactory( final boolean useVirtualThreads )
+    {
+        Object builder = null;
+        Method method = null;
+        if ( useVirtualThreads )
+        {
+            try
+            {
+                builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+                method = Class.forName( "java.lang.Thread$Builder" ).getMethod( "unstarted", Runnable.class );
+            }
+            catch ( ReflectiveOperationException exception )
+            {
+                builder = null;
+                method = null;
+                Logger.getLogger( ProxyThreadFactory.class.getName() )
+                      .log( Level.INFO, "Virtual threads are unavailable: using platform threads." );
+            }
+        }
+        virtualThreadBuilder = builder;
+        unstarted = method;
+    }
+    
+    boolean isVirtual() { return virtualThreadBuilder != null; }
+
+    @Override
+    public Thread newThread( final Runnable runnable ) 
+    {
+        if ( virtualThreadBuilder != null )
+        {
+            try
+            {
+                return (Thread) unstarted.invoke( virtualThreadBuilder, runnable );
+            }
+            catch ( ReflectiveOperationException exception )
+            {
+                Logger.getLogger( ProxyThreadFactory.class.getName() )
+                      .log( Level.WARNING, null, exception );
+            }
+        }
+        final Thread thread = new Thread( null, runnable, "", PLATFORM_STACK_SIZE );
+        thread.setDaemon( true );
+        return thread;
+    }
+}
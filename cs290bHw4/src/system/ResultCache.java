@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.ReturnValue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Space's cache of the values of tasks that declare a cache key. Tasks 
+ * with equal keys have equal values, so a task whose key is cached is not 
+ * dispatched: The cached ReturnValue, readdressed to it, is processed 
+ * instead. A task whose key is pending - a task with an equal key has been 
+ * dispatched, but has no value yet - waits for that value. Each value is 
+ * weighed by its approximate number of bytes: The cache holds at most a fixed
+ * number of bytes, evicting the least recently used values, and does not 
+ * cache a value that is too big. A pending key is owned by the job of the 
+ * task that was dispatched for it; when that job finishes before the value 
+ * arrives, a waiting task of another job is dispatched in its stead.
+ * @author Peter Cappello
+ */
+class ResultCache 
+{
+    final private Map<Object, CachedValue> values = new LinkedHashMap<>( 16, 0.75f, true ); // in access order
+    final private Map<Object, Pending> pendingKeys = new HashMap<>();
+    final private long capacity;
+    final private long maxValueSize;
+    private long size; // bytes
+    
+    /**
+     * 
+     * @param capacity the maximum number of bytes of cached values.
+     * @param maxValueSize the maximum number of bytes of a cached value.
+     */
+    ResultCache( final long capacity, final long maxValueSize )
+    {
+        this.capacity = capacity;
+        this.maxValueSize = maxValueSize;
+    }
+    
+    /**
+     * Decide whether a ready task is to be dispatched. If not, it is either 
+     * given its cached value, made to wait for its pending value, or, if its
+     * job is finished, dropped: Its key is not made pending, since finish 
+     * would not release it.
+     * @param task a ready task whose cache key is not null.
+     * @param space processes the task's cached value.
+     * @return true if and only if the task's key is neither cached nor pending,
+     * and its job is not finished.
+     */
+    boolean dispatch( final Task task, final SpaceImpl space )
+    {
+        final Object key = task.cacheKey();
+        final ReturnValue value;
+        synchronized ( this )
+        {
+            final CachedValue cachedValue = values.get( key );
+            value = cachedValue == null ? null : cachedValue.value;
+            if ( value == null )
+            {
+                if ( ! space.isJob( task.jobId() ) )
+                {
+                    return false;
+                }
+                final Pending pending = pendingKeys.get( key );
+                if ( pending == null )
+                {
+                    pendingKeys.put( key, new Pending( task.jobId() ) );
+                    return true;
+                }
+                pending.waitingTasks.add( task );
+                return false;
+            }
+        }
+        space.processResult( task, value.readdress( task ) );
+        return false;
+    }
+    
+    /**
+     * Cache a task's value, unless it is too big, and give it to the tasks 
+     * that wait for it.
+     * @param task a task whose cache key is not null.
+     * @param value its value.
+     * @param space processes the value for the waiting tasks.
+     */
+    void put( final Task task, final ReturnValue value, final SpaceImpl space )
+    {
+        final Object key = task.cacheKey();
+        final long valueSize = value.numBytes();
+        final Pending pending;
+        synchronized ( this )
+        {
+            if ( valueSize <= maxValueSize )
+            {
+                final CachedValue replaced = values.put( key, new CachedValue( value, valueSize ) );
+                size += valueSize - ( replaced == null ? 0 : replaced.size );
+                evict();
+            }
+            pending = pendingKeys.remove( key );
+        }
+        if ( pending != null )
+        {
+            pending.waitingTasks.forEach( waitingTask -> space.processResult( waitingTask, value.readdress( waitingTask ) ) );
+        }
+    }
+    
+    /**
+     * Release the pending keys of a finished job, whose values may never 
+     * arrive. Its waiting tasks are discarded. For each key that it owns, a 
+     * waiting task of another job, if any, becomes the key's owner, to be 
+     * dispatched; otherwise, the key is no longer pending.
+     * @param jobId the id of the finished job.
+     * @return the tasks to be dispatched.
+     */
+    synchronized List<Task> finish( final int jobId )
+    {
+        final List<Task> tasks = new ArrayList<>();
+        for ( Iterator<Pending> iterator = pendingKeys.values().iterator(); iterator.hasNext(); )
+        {
+            final Pending pending = iterator.next();
+            pending.waitingTasks.removeIf( task -> task.jobId() == jobId );
+            if ( pending.jobId != jobId )
+            {
+                continue;
+            }
+            if ( pending.waitingTasks.isEmpty() )
+            {
+                iterator.remove();
+                continue;
+            }
+            final Task task = pending.waitingTasks.remove( 0 );
+            pending.jobId = task.jobId();
+            tasks.add( task );
+        }
+        return tasks;
+    }
+    
+    /**
+     * Evict the least recently used values, until the cache is within its 
+     * capacity.
+     */
+    private void evict()
+    {
+        for ( Iterator<CachedValue> iterator = values.values().iterator(); size > capacity && iterator.hasNext(); )
+        {
+            size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+    
+    private static class Pending
+    {
+        final private List<Task> waitingTasks = new ArrayList<>();
+        private int jobId; // of the dispatched task
+        
+        Pending( final int jobId ) { this.jobId = jobId; }
+    }
+    
+    private static class CachedValue
+    {
+        final private ReturnValue value;
+        final private long size; // bytes
+        
+        CachedValue( final ReturnValue value, final long size )
+        {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
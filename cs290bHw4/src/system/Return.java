@@ -23,19 +23,44 @@
  */
 package system;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import static util.VarInts.readVarInt;
+import static util.VarInts.readVarLong;
+import static util.VarInts.writeVarInt;
+import static util.VarInts.writeVarLong;
 
 /**
- *
+ * A Return is Externalizable, as is a Task.
  * @author Peter Cappello
  */
-abstract public class Return implements Serializable
+abstract public class Return implements Externalizable
 {
+    private int  taskId;
     private long taskRunTime;
 
+    public int  taskId() { return taskId; }
+    public void taskId( int taskId ) { this.taskId = taskId; }
+    
     public long taskRunTime() { return taskRunTime; }
     public void taskRunTime( long taskRunTime ) { this.taskRunTime = taskRunTime; }
     
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        writeVarInt( out, taskId );
+        writeVarLong( out, taskRunTime );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        taskId = readVarInt( in );
+        taskRunTime = readVarLong( in );
+    }
+    
     /**
      *
      * @param task the task whose Result is to be processed.
@@ -48,6 +73,7 @@ abstract public class Return implements Serializable
     {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append( getClass() );
+        stringBuilder.append( "\n\tTask id:\t" ).append( taskId );
         stringBuilder.append( "\n\tExecution time:\t" ).append( taskRunTime );
         return stringBuilder.toString();
     }
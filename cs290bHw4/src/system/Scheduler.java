@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Scheduler holds the Space's ready tasks, and decides which ready task 
+ * is sent to which Computer.
+ * @author Peter Cappello
+ */
+public interface Scheduler 
+{
+    /**
+     * Add a ready task.
+     * @param task the ready task.
+     */
+    void add( Task task );
+    
+    /**
+     * Take a ready task to be sent to a Computer; wait until one is available,
+     * or the timeout elapses.
+     * @param computerId the id of the Computer to which the task is to be sent.
+     * @param timeout how long to wait.
+     * @param unit the unit of timeout.
+     * @return a ready task, or null if there is none after the timeout.
+     * @throws InterruptedException
+     */
+    Task poll( int computerId, long timeout, TimeUnit unit ) throws InterruptedException;
+    
+    /**
+     * Take a ready task to be sent to a Computer, if one is available.
+     * @param computerId the id of the Computer to which the task is to be sent.
+     * @return a ready task, or null if there is none.
+     */
+    Task poll( int computerId );
+    
+    /**
+     * Declare a Computer that takes tasks. A ready task with affinity for it
+     * is preferably taken by it.
+     * @param computerId the id of the registered Computer.
+     */
+    void register( int computerId );
+    
+    /**
+     * Release the resources associated with a Computer that no longer takes tasks.
+     * @param computerId the id of the unregistered Computer.
+     */
+    void unregister( int computerId );
+    
+    /**
+     * Declare a job, before its first task is added.
+     * @param jobId the id of the job.
+     * @param priority the job's tasks are taken before those of jobs with lower priority.
+     * @param weight the job's share of the Computers, relative to jobs of the same priority.
+     */
+    void addJob( int jobId, int priority, int weight );
+    
+    /**
+     * Declare that a job is finished.
+     * @param jobId the id of the job.
+     */
+    void removeJob( int jobId );
+}
@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Scheduler that keeps each job's ready tasks in separate work-stealing 
+ * deques, and shares the Computers among the jobs. A task of a job with 
+ * higher priority is taken before any task of a job with lower priority. 
+ * Among jobs of the same priority, the Computers are shared in proportion to
+ * the jobs' weights, by stride scheduling: Each job has a pass, which 
+ * advances by STRIDE / weight each time one of its tasks is taken; the job 
+ * with the least pass is chosen next. A job is chosen, and one of its tasks
+ * reserved, without locking; only the advance of its pass is locked.
+ * Tasks of a job that is not declared, or is finished, are dropped.
+ * @author Peter Cappello
+ */
+public class SchedulerFairShare implements Scheduler
+{
+    static final private long STRIDE = 1 << 20;
+    
+    final private Map<Integer, JobQueue> jobQueues = new ConcurrentHashMap<>();
+    final private Semaphore numReadyTasks = new Semaphore( 0 );
+    final private Set<Integer> computerIds = ConcurrentHashMap.newKeySet();
+    private long virtualTime; // guarded by this
+    
+    @Override
+    public void add( Task task ) 
+    {
+        final JobQueue jobQueue = jobQueues.get( task.jobId() );
+        if ( jobQueue == null || ! jobQueue.add( task ) )
+        {
+            Logger.getLogger( SchedulerFairShare.class.getName() )
+                  .log( Level.FINE, "Dropped a task of finished job {0}.", task.jobId() );
+            return;
+        }
+        numReadyTasks.release();
+    }
+
+    @Override
+    public Task poll( int computerId, long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        return numReadyTasks.tryAcquire( timeout, unit ) ? remove( computerId ) : null;
+    }
+
+    @Override
+    public Task poll( int computerId ) 
+    { 
+        return numReadyTasks.tryAcquire() ? remove( computerId ) : null;
+    }
+    
+    @Override
+    public void register( int computerId ) { computerIds.add( computerId ); }
+
+    @Override
+    public void unregister( int computerId ) 
+    { 
+        computerIds.remove( computerId );
+        jobQueues.values().forEach( jobQueue -> jobQueue.deques.unregister( computerId ) );
+    }
+    
+    /**
+     * A new job's pass starts at the current virtual time, so that it does 
+     * not take the Computers from the jobs already running to catch up.
+     * @param jobId the id of the job.
+     * @param priority the job's tasks are taken before those of jobs with lower priority.
+     * @param weight the job's share of the Computers, relative to jobs of the same priority.
+     */
+    @Override
+    synchronized public void addJob( int jobId, int priority, int weight ) 
+    {
+        if ( weight <= 0 )
+        {
+            throw new IllegalArgumentException( "Job weight must be positive: " + weight );
+        }
+        jobQueues.put( jobId, new JobQueue( priority, weight, virtualTime, computerIds ) );
+    }
+    
+    /**
+     * No more of the job's tasks are added. Its queue is discarded when it is
+     * empty.
+     * @param jobId the id of the job.
+     */
+    @Override
+    public void removeJob( int jobId ) 
+    {
+        final JobQueue jobQueue = jobQueues.get( jobId );
+        if ( jobQueue != null )
+        {
+            jobQueue.remove();
+        }
+    }
+    
+    /**
+     * Remove a ready task for a Computer. The caller holds a permit from 
+     * numReadyTasks, so some job has an unreserved task for it.
+     * @param computerId the id of the Computer to which the task is to be sent.
+     * @return a ready task.
+     */
+    private Task remove( int computerId )
+    {
+        final JobQueue jobQueue = select();
+        Task task;
+        do
+        {
+            task = jobQueue.deques.poll( computerId );
+        } while ( task == null );
+        return task;
+    }
+    
+    /**
+     * Choose the job whose task is to be taken, and reserve one of its tasks.
+     * If another thread reserves the chosen job's last task first, choose again.
+     * @return the chosen job's queue.
+     */
+    private JobQueue select()
+    {
+        while ( true )
+        {
+            JobQueue selected = null;
+            for ( Iterator<Map.Entry<Integer, JobQueue>> iterator = jobQueues.entrySet().iterator(); iterator.hasNext(); )
+            {
+                final Map.Entry<Integer, JobQueue> entry = iterator.next();
+                final JobQueue jobQueue = entry.getValue();
+                if ( jobQueue.numTasks.get() == 0 )
+                {
+                    if ( jobQueue.isEmptyAndRemoved() )
+                    {
+                        jobQueues.remove( entry.getKey(), jobQueue );
+                    }
+                    continue;
+                }
+                if ( selected == null || jobQueue.priority > selected.priority 
+                        || jobQueue.priority == selected.priority && jobQueue.pass < selected.pass )
+                {
+                    selected = jobQueue;
+                }
+            }
+            if ( selected != null && selected.reserve() )
+            {
+                advance( selected );
+                return selected;
+            }
+        }
+    }
+    
+    /**
+     * Advance the pass of a job whose task is taken. A job that was idle does
+     * not accumulate credit beyond the virtual time.
+     * @param jobQueue the chosen job's queue.
+     */
+    synchronized private void advance( JobQueue jobQueue )
+    {
+        jobQueue.pass = Math.max( jobQueue.pass, virtualTime ) + jobQueue.stride;
+        virtualTime = jobQueue.pass - jobQueue.stride;
+    }
+    
+    private static class JobQueue
+    {
+        final private WorkStealingDeques deques;
+        final private AtomicInteger numTasks = new AtomicInteger(); // unreserved
+        final private int priority;
+        final private long stride;
+        volatile private long pass; // written under SchedulerFairShare.this
+        private boolean isRemoved; // guarded by this
+        
+        JobQueue( int priority, int weight, long pass, Set<Integer> computerIds )
+        {
+            deques = new WorkStealingDeques( computerIds );
+            this.priority = priority;
+            this.stride = STRIDE / weight;
+            this.pass = pass;
+        }
+        
+        /**
+         * Add a ready task of the job.
+         * @param task the ready task.
+         * @return false if and only if the job is removed, and the task is not added.
+         */
+        synchronized boolean add( Task task )
+        {
+            if ( isRemoved )
+            {
+                return false;
+            }
+            deques.add( task );
+            numTasks.incrementAndGet();
+            return true;
+        }
+        
+        synchronized void remove() { isRemoved = true; }
+        
+        /**
+         * Since a removed job's queue adds no more tasks, once it is empty, it
+         * stays empty.
+         * @return true if and only if the job is removed, and its queue is empty.
+         */
+        synchronized boolean isEmptyAndRemoved() { return isRemoved && numTasks.get() == 0; }
+        
+        /**
+         * Reserve a task, if there is an unreserved one.
+         * @return true if and only if a task was reserved.
+         */
+        boolean reserve()
+        {
+            for ( int n = numTasks.get(); n > 0; n = numTasks.get() )
+            {
+                if ( numTasks.compareAndSet( n, n - 1 ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Scheduler that has a single ready task deque, shared by all Computers.
+ * The most recently added ready task is taken first.
+ * @author Peter Cappello
+ */
+public class SchedulerLifo implements Scheduler
+{
+    final private BlockingDeque<Task> readyTasks = new LinkedBlockingDeque<>();
+    
+    @Override
+    public void add( Task task ) { readyTasks.addFirst( task ); }
+
+    @Override
+    public Task poll( int computerId, long timeout, TimeUnit unit ) throws InterruptedException 
+    { 
+        return readyTasks.pollFirst( timeout, unit ); 
+    }
+
+    @Override
+    public Task poll( int computerId ) { return readyTasks.pollFirst(); }
+
+    @Override
+    public void register( int computerId ) {}
+
+    @Override
+    public void unregister( int computerId ) {}
+    
+    @Override
+    public void addJob( int jobId, int priority, int weight ) {}
+    
+    @Override
+    public void removeJob( int jobId ) {}
+}
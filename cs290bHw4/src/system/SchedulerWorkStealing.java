@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A work-stealing Scheduler. Each Computer has its own ready task deque, 
+ * into which the ready tasks with affinity for it are added: the subtasks and
+ * composition of a task that it decomposed. A Computer
+ * takes the most recently added task from its own deque, preserving the 
+ * locality of a decomposition subtree. When its deque is empty, it takes the
+ * most recently added task from the deque of tasks not produced by any
+ * Computer (e.g., a job's first task), or else steals the least recently added
+ * task, the root of the largest subtree, from another Computer's deque.
+ * The deques are lock-free; a Computer waits only when no deque has a task.
+ * @author Peter Cappello
+ */
+public class SchedulerWorkStealing implements Scheduler
+{
+    final private Set<Integer> computerIds = ConcurrentHashMap.newKeySet();
+    final private WorkStealingDeques deques = new WorkStealingDeques( computerIds );
+    final private Semaphore numReadyTasks = new Semaphore( 0 );
+    
+    @Override
+    public void add( Task task ) 
+    {
+        deques.add( task );
+        numReadyTasks.release();
+    }
+
+    @Override
+    public Task poll( int computerId, long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        return numReadyTasks.tryAcquire( timeout, unit ) ? remove( computerId ) : null;
+    }
+
+    @Override
+    public Task poll( int computerId ) 
+    { 
+        return numReadyTasks.tryAcquire() ? remove( computerId ) : null;
+    }
+    
+    @Override
+    public void register( int computerId ) { computerIds.add( computerId ); }
+
+    @Override
+    public void unregister( int computerId ) 
+    { 
+        computerIds.remove( computerId );
+        deques.unregister( computerId ); 
+    }
+    
+    @Override
+    public void addJob( int jobId, int priority, int weight ) {}
+    
+    @Override
+    public void removeJob( int jobId ) {}
+    
+    /**
+     * Remove a ready task for a Computer. The caller holds a permit from 
+     * numReadyTasks, so some deque has a task for it.
+     * @param computerId the id of the Computer to which the task is to be sent.
+     * @return a ready task.
+     */
+    private Task remove( int computerId )
+    {
+        Task task;
+        do
+        {
+            task = deques.poll( computerId );
+        } while ( task == null );
+        return task;
+    }
+}
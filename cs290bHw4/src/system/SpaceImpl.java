@@ -24,22 +24,33 @@
 package system;
 
 import api.ReturnValue;
+import api.Shared;
 import api.Space;
 import api.TaskCompose;
+import api.TaskDecompose;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import util.ConcurrentIntMap;
+import util.ResizableSemaphore;
 
 /**
  * SpaceImpl implements the space for coordinating sending/receiving Task and Result objects.
@@ -48,29 +59,86 @@ import java.util.logging.Logger;
 public class SpaceImpl extends UnicastRemoteObject implements Space
 {
     // Immutable class attributes
-    static final public int PROXIES_PER_PROCESSOR = 2;
+    static final public int TASKS_PER_PROCESSOR = 2;
     static final public int FINAL_RETURN_VALUE = -1;
+    static final private int WAITING_TASK_MAP_SIZE = 1 << 16; // initial size; stripes grow as needed
+    static final private long TAKE_TIMEOUT = 100; // ms: an idle TaskSender notices a drain this soon
     
     // Mutable class attributes: Since SpaceImpl is a singleton, its mutable fields are declared static.
     static final private AtomicInteger computerIds = new AtomicInteger();
     static final private AtomicInteger taskIds = new AtomicInteger();
-    static final private BlockingDeque<Task>     readyTasks = new LinkedBlockingDeque<>();
-    static final private BlockingQueue<ReturnValue> resultQ = new LinkedBlockingQueue<>();
-    static final private Map<Computer,ComputerProxy> computerProxies = Collections.synchronizedMap( new HashMap<>() );  // !! make concurrent
-    static final private Map<Integer, TaskCompose>   waitingTaskMap  = Collections.synchronizedMap( new HashMap<>() );
+    static final private Scheduler scheduler = Configuration.FAIR_SHARE 
+                                             ? new SchedulerFairShare()
+                                             : Configuration.WORK_STEALING 
+                                             ? new SchedulerWorkStealing() 
+                                             : new SchedulerLifo();
+    static final private AtomicInteger jobIds = new AtomicInteger();
+    static final private Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+    static final private AtomicInteger channelIds = new AtomicInteger();
+    static final private Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    static final private Map<Computer,ComputerProxy> computerProxies = new ConcurrentHashMap<>();
+    static final private ConcurrentIntMap<TaskCompose> waitingTaskMap = new ConcurrentIntMap<>( WAITING_TASK_MAP_SIZE );
+    static final private GranularityMonitor granularityMonitor = new GranularityMonitor();
+    static final private ProxyThreadFactory proxyThreads = new ProxyThreadFactory( Configuration.VIRTUAL_PROXY_THREADS );
+    static final private ExecutorService spaceCallExecutor = Executors.newFixedThreadPool( Configuration.SPACE_CALL_THREADS, runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "Space call" );
+        thread.setDaemon( true );
+        return thread;
+    });
+    static final private TaskTable taskTable = new TaskTable();
+    static final private ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "Space monitor" );
+        thread.setDaemon( true );
+        return thread;
+    });
+    static final private ResultCache resultCache = new ResultCache( Configuration.RESULT_CACHE_SIZE, Configuration.RESULT_CACHE_MAX_VALUE );
+    static final private Journal journal = Configuration.JOURNAL 
+                                         ? new Journal( Configuration.JOURNAL_FILE, Configuration.JOURNAL_SIZE ) 
+                                         : null;
+    private static volatile int tasksPerProcessor = TASKS_PER_PROCESSOR;
         
     public SpaceImpl() throws RemoteException 
     {
         Logger.getLogger(getClass().getName() )
-              .log( Level.INFO, "Space started." );
+              .log( Level.INFO, "Space started: Computer proxies use {0} threads.", 
+                    proxyThreads.isVirtual() ? "virtual" : "platform" );
+        if ( Configuration.JOURNAL )
+        {
+            recover();
+            journal.start();
+        }
+        if ( Configuration.SPECULATION )
+        {
+            monitor.scheduleWithFixedDelay( this::speculate, Configuration.SPECULATION_INTERVAL, 
+                    Configuration.SPECULATION_INTERVAL, TimeUnit.MILLISECONDS );
+        }
+        if ( Configuration.HEARTBEATS )
+        {
+            monitor.scheduleWithFixedDelay( this::checkHeartbeats, Configuration.HEARTBEAT_INTERVAL, 
+                    Configuration.HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS );
+        }
     }
     
-    public void addReadyTask( Task task ) { readyTasks.addFirst( task ); }
+    /**
+     * Add a ready task to the scheduler, unless its value is cached or pending.
+     * Only a TaskDecompose is looked up: A TaskCompose has the cache key of 
+     * the task it composes, which is pending.
+     * @param task 
+     */
+    public void addReadyTask( Task task ) 
+    { 
+        if ( Configuration.RESULT_CACHE && task instanceof TaskDecompose && task.cacheKey() != null 
+                && ! resultCache.dispatch( task, this ) )
+        {
+            return;
+        }
+        scheduler.add( task ); 
+    }
     
     /**
      * Compute a Task and return its Return.
-     * To ensure that the correct Return is returned, the 1 client must
-     * only invoke this method sequentially. 
      * 
      * @param task
      * @return the Task's Return object.
@@ -78,36 +146,137 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
     @Override
     public ReturnValue compute( Task task )
     {
-        execute( task );
-        return take();
+        return take( submit( task ) );
+    }
+    
+    /**
+     * Start a job, with the default priority and weight.
+     * @param task
+     * @return the job's id.
+     */
+    @Override
+    public int submit( Task task ) { return submit( task, DEFAULT_PRIORITY, DEFAULT_WEIGHT ); }
+    
+    /**
+     * Start a job: Put its task into the Task queue.
+     * @param task
+     * @param priority
+     * @param weight
+     * @return the job's id.
+     */
+    @Override
+    public int submit( Task task, int priority, int weight ) 
+    { 
+        return submit( task, priority, weight, new Job( jobIds.incrementAndGet() ) );
     }
     
     /**
-     * Put a task into the Task queue.
+     * Start a job whose results are put into a channel's queue.
      * @param task
+     * @param priority
+     * @param weight
+     * @param channelId
+     * @return the job's id.
      */
     @Override
-    public void execute( Task task ) 
+    public int submit( Task task, int priority, int weight, int channelId ) 
+    { 
+        final Channel channel = channel( channelId );
+        return submit( task, priority, weight, new Job( jobIds.incrementAndGet(), channel ) );
+    }
+    
+    private int submit( Task task, int priority, int weight, Job job ) 
     { 
+        scheduler.addJob( job.id(), priority, weight );
+        jobs.put( job.id(), job );
         task.id( makeTaskId() );
+        task.jobId( job.id() );
         task.composeId( FINAL_RETURN_VALUE );
+        if ( Configuration.JOURNAL )
+        {
+            journal.job( job.id(), priority, weight, task );
+        }
         addReadyTask( task );
+        return job.id();
     }
     
+    /**
+     * Take the final Return from the job's Return queue, discarding partial Returns.
+     * @param jobId
+     * @return a Return object.
+     */
     @Override
-    synchronized public void putAll( final List<Task> taskList )
+    public ReturnValue take( final int jobId ) 
     {
-        taskList.stream().forEach( this::addReadyTask );
+        ReturnValue returnValue;
+        do
+        {
+            returnValue = takeNext( jobId );
+        } while ( ! returnValue.isFinal() );
+        return returnValue;
     }
-
+    
     /**
-     * Take a Return from the Return queue.
+     * Take a Return, partial or final, from the job's Return queue. The job 
+     * is finished when its final Return is taken.
+     * @param jobId
      * @return a Return object.
      */
     @Override
-    public ReturnValue take() 
+    public ReturnValue takeNext( final int jobId ) 
+    {
+        final Job job = jobs.get( jobId );
+        if ( job == null )
+        {
+            throw new IllegalArgumentException( "No job has id " + jobId + "." );
+        }
+        try 
+        { 
+            final ReturnValue returnValue = job.takeResult();
+            if ( returnValue.isFinal() )
+            {
+                finish( jobId );
+            }
+            return returnValue;
+        } 
+        catch ( InterruptedException exception ) 
+        {
+            Logger.getLogger( SpaceImpl.class.getName() )
+                    .log( Level.INFO, null, exception );
+        }
+        assert false; // should never reach this point
+        return null;
+    }
+
+    @Override
+    public int openChannel()
+    {
+        final Channel channel = new Channel( channelIds.incrementAndGet() );
+        channels.put( channel.id(), channel );
+        return channel.id();
+    }
+    
+    /**
+     * Take all Returns, partial and final, from the channel's Return queue, 
+     * waiting for one if it is empty. Each job whose final Return is taken is
+     * finished.
+     * @param channelId
+     * @return a list of Return objects; empty if the channel is closed.
+     */
+    @Override
+    public List<ReturnValue> takeAll( final int channelId )
     {
-        try { return resultQ.take(); } 
+        final Channel channel = channels.get( channelId );
+        if ( channel == null )
+        {
+            return new ArrayList<>(); // closed before this call
+        }
+        try 
+        {
+            final List<ReturnValue> returnValues = channel.takeResults();
+            returnValues.stream().filter( ReturnValue::isFinal ).forEach( returnValue -> finish( returnValue.jobId() ) );
+            return returnValues;
+        } 
         catch ( InterruptedException exception ) 
         {
             Logger.getLogger( SpaceImpl.class.getName() )
@@ -116,31 +285,373 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
         assert false; // should never reach this point
         return null;
     }
+    
+    @Override
+    public void closeChannel( final int channelId )
+    {
+        final Channel channel = channels.remove( channelId );
+        if ( channel != null )
+        {
+            channel.close();
+            jobs.values().stream()
+                    .filter( job -> job.channelId() == channelId )
+                    .map( Job::id )
+                    .collect( Collectors.toList() )
+                    .forEach( this::finish );
+        }
+    }
+    
+    private Channel channel( final int channelId )
+    {
+        final Channel channel = channels.get( channelId );
+        if ( channel == null )
+        {
+            throw new IllegalArgumentException( "No channel has id " + channelId + "." );
+        }
+        return channel;
+    }
+    
+    /**
+     * 
+     * @param jobId the id of a job.
+     * @return true if and only if the job is submitted, and not finished.
+     */
+    boolean isJob( final int jobId ) { return jobs.containsKey( jobId ); }
+    
+    /**
+     * Release the resources of a job whose final Return has been taken.
+     * @param jobId
+     */
+    private void finish( final int jobId )
+    {
+        if ( Configuration.JOURNAL )
+        {
+            journal.finished( jobId );
+        }
+        jobs.remove( jobId );
+        scheduler.removeJob( jobId );
+        taskTable.removeJob( jobId );
+        if ( Configuration.RESULT_CACHE )
+        {
+            resultCache.finish( jobId ).forEach( scheduler::add ); // their keys are pending.
+        }
+        computerProxies.values().forEach( computerProxy -> computerProxy.downShared( jobId, null ) );
+    }
+
+    /**
+     * If the Shared value is newer than the job's, broadcast it to all Computers.
+     * @param jobId
+     * @param shared the Shared value produced by some task of the job.
+     */
+    @Override
+    public void upShared( final int jobId, final Shared shared )
+    {
+        final Job job = jobs.get( jobId );
+        if ( job != null && job.shared( shared ) )
+        {
+            if ( Configuration.JOURNAL )
+            {
+                journal.shared( jobId, shared );
+            }
+            computerProxies.values().forEach( computerProxy -> computerProxy.downShared( jobId, shared ) );
+        }
+    }
 
     /**
      * Register Computer with Space.  
-     * Will override existing key-value pair, if any.
+     * Will override existing key-value pair, if any: The Computer rejoins, 
+     * and the tasks in flight to it are made ready again.
      * @param computer
      * @param numProcessors computer's number of available processors.
+     * @return the computer's id.
      * @throws RemoteException
      */
     @Override
-    public void register( Computer computer, int numProcessors ) throws RemoteException
+    public int register( Computer computer, int numProcessors ) throws RemoteException
     {
-        final ComputerProxy computerproxy = new ComputerProxy( computer, PROXIES_PER_PROCESSOR* numProcessors );
-        computerProxies.put( computer, computerproxy );
-        computerproxy.startWorkerProxies();
+        final ComputerProxy computerproxy = new ComputerProxy( computer, numProcessors );
+        final ComputerProxy oldComputerProxy = computerProxies.put( computer, computerproxy );
+        if ( oldComputerProxy != null )
+        {
+            oldComputerProxy.remove( Level.INFO, "Computer {0} rejoined." );
+        }
+        jobs.values().stream()
+                .filter( job -> job.shared() != null ) // null would mean that the job is finished.
+                .forEach( job -> computerproxy.downShared( job.id(), job.shared() ) );
+        computerproxy.start();
         Logger.getLogger( this.getClass().getName() )
               .log( Level.INFO, "Registered computer {0}.", computerproxy.computerId );
+        return computerproxy.computerId;
+    }
+    
+    /**
+     * Note that a Computer is alive.
+     * @param computerId
+     * @return true if and only if the Computer is registered.
+     */
+    @Override
+    public boolean heartbeat( final int computerId )
+    {
+        final ComputerProxy computerProxy = computerProxy( computerId );
+        if ( computerProxy == null )
+        {
+            return false;
+        }
+        computerProxy.heartbeatTime = System.currentTimeMillis();
+        return true;
+    }
+    
+    /**
+     * Drain a Computer, and wait until it is unregistered.
+     * @param computer
+     */
+    @Override
+    public void deregister( final Computer computer )
+    {
+        final ComputerProxy computerProxy = computerProxies.get( computer );
+        if ( computerProxy == null )
+        {
+            return;
+        }
+        computerProxy.drain();
+        try 
+        { 
+            computerProxy.isRemoved.await();
+        }
+        catch ( InterruptedException exception ) 
+        {
+            Logger.getLogger( SpaceImpl.class.getName() )
+                  .log( Level.INFO, null, exception );
+        }
+    }
+    
+    private ComputerProxy computerProxy( final int computerId )
+    {
+        return computerProxies.values().stream()
+                .filter( computerProxy -> computerProxy.computerId == computerId )
+                .findAny()
+                .orElse( null );
+    }
+    
+    /**
+     * Unregister each Computer from which nothing has been heard for 
+     * HEARTBEAT_TIMEOUT milliseconds, making its tasks in flight ready again.
+     */
+    private void checkHeartbeats()
+    {
+        final long time = System.currentTimeMillis();
+        computerProxies.values().stream()
+                .filter( computerProxy -> time - computerProxy.heartbeatTime > Configuration.HEARTBEAT_TIMEOUT )
+                .forEach( computerProxy -> computerProxy.remove( Level.WARNING, "Computer {0} stopped sending heartbeats." ) );
+    }
+    
+    /**
+     * Set the number of tasks, per processor, that may be in flight to each 
+     * Computer: sent to it, but not yet returned. Applies to registered 
+     * Computers immediately, and to Computers registered later.
+     * @param tasksPerProcessor a positive number.
+     */
+    public void tasksPerProcessor( final int tasksPerProcessor )
+    {
+        if ( tasksPerProcessor <= 0 )
+        {
+            throw new IllegalArgumentException( "Tasks per processor must be positive: " + tasksPerProcessor );
+        }
+        SpaceImpl.tasksPerProcessor = tasksPerProcessor;
+        computerProxies.values().forEach( ComputerProxy::resize );
     }
     
     public static void main( String[] args ) throws Exception
     {
         System.setSecurityManager( new SecurityManager() );
-        LocateRegistry.createRegistry( Space.PORT ).rebind( Space.SERVICE_NAME, new SpaceImpl() );
+        final SpaceImpl space = new SpaceImpl();
+        LocateRegistry.createRegistry( Space.PORT ).rebind( Space.SERVICE_NAME, space );
+        if ( Configuration.NIO_TRANSPORT )
+        {
+            new NioComputerServer( space, Space.NIO_PORT ).start();
+        }
     }
 
-    public void processResult( final Task parentTask, final Return result ) { result.process( parentTask, this ); }
+    /**
+     * Process a task's Return; cache it, if it is the value of a task that 
+     * has a cache key. A value is journaled after it is processed.
+     * @param parentTask
+     * @param result 
+     */
+    public void processResult( final Task parentTask, final Return result ) 
+    { 
+        if ( Configuration.RESULT_CACHE && result instanceof ReturnValue && parentTask.cacheKey() != null )
+        {
+            resultCache.put( parentTask, (ReturnValue) result, this );
+        }
+        result.process( parentTask, this ); 
+        if ( Configuration.JOURNAL && result instanceof ReturnValue )
+        {
+            journal.value( parentTask, (ReturnValue) result );
+        }
+    }
+    
+    /**
+     * Put the composition and subtasks of a decomposed task: The composition
+     * waits for the values of the subtasks, which are ready. Both have 
+     * affinity for the Computer that decomposed the task, so that its 
+     * subtree tends to stay there. The decomposition is journaled before any
+     * subtask can be dispatched.
+     * @param parentTask the decomposed task.
+     * @param compose its composition.
+     * @param tasks its subtasks.
+     */
+    public void putDecomposition( final Task parentTask, final TaskCompose compose, final List<Task> tasks )
+    {
+        if ( Configuration.JOURNAL )
+        {
+            journal.decomposition( parentTask, compose, tasks );
+        }
+        ( (Task) compose ).affinity( parentTask.affinity() );
+        tasks.forEach( task -> task.affinity( parentTask.affinity() ) );
+        putCompose( compose );
+        tasks.forEach( this::addReadyTask );
+    }
+    
+    /**
+     * Recover the unfinished jobs from the journal: Their waiting compositions
+     * wait again, and their ready tasks, including those that were in flight,
+     * are ready again. Their clients take their results by job id.
+     * @throws RemoteException if the journal cannot be read; it is kept.
+     */
+    private void recover() throws RemoteException
+    {
+        final Journal.State state;
+        try 
+        {
+            state = journal.recover();
+        }
+        catch ( IOException exception )
+        {
+            throw new RemoteException( "Journal recovery failed.", exception );
+        }
+        taskIds.set( state.maxTaskId );
+        jobIds.set( state.maxJobId );
+        state.jobs.forEach( ( jobId, jobState ) -> 
+        {
+            final Job job = new Job( jobId );
+            scheduler.addJob( jobId, jobState.priority, jobState.weight );
+            jobs.put( jobId, job );
+            if ( jobState.shared != null )
+            {
+                job.shared( jobState.shared );
+            }
+            if ( jobState.finalValue != null )
+            {
+                job.putResult( jobState.finalValue );
+            }
+        });
+        state.composes.values().forEach( compose -> 
+        {
+            if ( ! compose.isReady() )
+            {
+                putCompose( compose );
+            }
+            else if ( compose.isSpaceCallable() )
+            {
+                callOnSpace( compose );
+            }
+            else
+            {
+                addReadyTask( compose );
+            }
+        });
+        state.readyTasks.values().forEach( this::addReadyTask );
+        Logger.getLogger( SpaceImpl.class.getName() )
+              .log( Level.INFO, "Recovered {0} jobs, with {1} ready tasks and {2} compositions.", 
+                    new Object[] { state.jobs.size(), state.readyTasks.size(), state.composes.size() } );
+    }
+    
+    /**
+     * Call a task on one of the Space's own threads, and process its Return.
+     * Then, the thread that made the task ready, e.g., a ComputerProxy's 
+     * ResultReceiver, does not wait for it. If the call fails, its job cannot
+     * finish; the failure is logged, since the executor would discard it.
+     * @param task 
+     */
+    public void callOnSpace( final Task task ) 
+    { 
+        spaceCallExecutor.execute( () -> 
+        {
+            try { processResult( task, task.call() ); }
+            catch ( RuntimeException | Error exception )
+            {
+                Logger.getLogger( SpaceImpl.class.getName() )
+                      .log( Level.SEVERE, String.format( "Task %d of job %d failed on the Space.", task.id(), task.jobId() ), exception );
+            }
+        }); 
+    }
+    
+    /**
+     * Make a speculative copy of each straggler ready. A Computer with a free
+     * slot, i.e., one that is not straggling, is likely to take it; the first
+     * Return of either is accepted.
+     */
+    private void speculate()
+    {
+        for ( Task task : taskTable.stragglers( this::stragglerTime ) )
+        {
+            final Task copy = copy( task );
+            if ( copy != null )
+            {
+                Logger.getLogger( SpaceImpl.class.getName() )
+                      .log( Level.FINE, "Speculating task {0}.", task.id() );
+                copy.speculative( true );
+                scheduler.add( copy );
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @param task an in-flight task.
+     * @param numQueuedRounds the number of rounds of tasks queued on its 
+     * Computer ahead of it, when it was sent.
+     * @return the time, in milliseconds since it was sent, after which the 
+     * task is a straggler: its estimated wait for the queued rounds, each 
+     * taking its job's median task run time, plus a multiple of the median.
+     */
+    private long stragglerTime( final Task task, final int numQueuedRounds )
+    {
+        final Job job = jobs.get( task.jobId() );
+        final long median = job == null ? -1 : job.medianTaskRunTime();
+        return median < 0 ? Long.MAX_VALUE 
+             : numQueuedRounds * median 
+             + Math.max( Configuration.SPECULATION_FACTOR * median, Configuration.SPECULATION_MIN_TIME );
+    }
+    
+    /**
+     * 
+     * @param task
+     * @return a deep copy of the task, made by serializing it, or null if it
+     * cannot be copied.
+     */
+    static private Task copy( final Task task )
+    {
+        try
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) 
+            {
+                out.writeObject( task );
+            }
+            try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+            {
+                return (Task) in.readObject();
+            }
+        }
+        catch ( IOException | ClassNotFoundException exception )
+        {
+            Logger.getLogger( SpaceImpl.class.getName() )
+                  .log( Level.WARNING, null, exception );
+            return null;
+        }
+    }
     
     public int makeTaskId() { return taskIds.incrementAndGet(); }
     
@@ -148,75 +659,304 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
             
     public void putCompose( final TaskCompose compose ) { waitingTaskMap.put( compose.id(), compose ); }
     
-    public void putReadyTask( final Task task ) { addReadyTask( task ); }
-    
-    public void putResult( final ReturnValue result ) { resultQ.add( result ); }
+    /**
+     * Put a result, partial or final, into its job's Return queue.
+     * @param result 
+     */
+    public void putResult( final ReturnValue result ) 
+    { 
+        final Job job = jobs.get( result.jobId() );
+        if ( job != null ) // else the job is finished.
+        {
+            job.putResult( result );
+        }
+    }
     
     public void removeWaitingTask( int composeId ) { waitingTaskMap.remove( composeId ); }
     
+    /**
+     * The Space-side proxy for a registered Computer. Its TaskSender keeps the
+     * Computer's ready task queue nonempty with best effort, sending as large a
+     * batch of ready tasks as the Computer has free slots for. Its 
+     * ResultReceiver keeps the Computer's result queue empty with best effort,
+     * taking all available results per call. Thus, communication overlaps 
+     * computation, and the cost of a remote call is amortized over a batch.
+     * The proxy uses 2 threads, regardless of the number of processors of its 
+     * Computer, which are virtual threads when available. The number of tasks 
+     * in flight to the Computer is bounded by a semaphore of free slots, which
+     * is resized when the number of tasks per processor is set.
+     * A draining proxy sends no more tasks; it is removed when its TaskSender
+     * has stopped and no task is in flight. Its TaskSender is not interrupted,
+     * lest it abort a putTasks in progress: It checks isDraining after each 
+     * wait, which is woken by a free slot or bounded by TAKE_TIMEOUT.
+     */
     private class ComputerProxy 
     {
         final private Computer computer;
         final private int computerId = computerIds.getAndIncrement();
-        final private Map<Integer, WorkerProxy> workerMap = new HashMap<>();
+        final private int numProcessors;
+        final private ResizableSemaphore freeSlots;
+        final private Map<Integer, Task> inFlightTasks = new ConcurrentHashMap<>();
+        final private Thread taskSender = proxyThreads.newThread( new TaskSender() );
+        final private Thread resultReceiver = proxyThreads.newThread( new ResultReceiver() );
+        final private CountDownLatch isRemoved = new CountDownLatch( 1 );
+        private volatile boolean isAlive = true;
+        private volatile boolean isDraining;
+        private volatile boolean isSenderStopped;
+        private volatile long heartbeatTime = System.currentTimeMillis();
       
-        ComputerProxy( Computer computer, int numWorkerProxies )
+        ComputerProxy( Computer computer, int numProcessors )
         { 
             this.computer = computer;
-            for ( int id = 0; id < numWorkerProxies; id++ )
+            this.numProcessors = numProcessors;
+            freeSlots = new ResizableSemaphore( tasksPerProcessor * numProcessors );
+            taskSender.setName( "Computer " + computerId + " TaskSender" );
+            resultReceiver.setName( "Computer " + computerId + " ResultReceiver" );
+        }
+        
+        private void start()
+        {
+            scheduler.register( computerId );
+            taskSender.start();
+            resultReceiver.start();
+        }
+        
+        private void resize() { freeSlots.numPermits( tasksPerProcessor * numProcessors ); }
+        
+        private void drain()
+        {
+            isDraining = true;
+            freeSlots.release(); // wake the TaskSender, if it waits for a free slot.
+        }
+        
+        private void removeIfDrained()
+        {
+            if ( isDraining && isSenderStopped && inFlightTasks.isEmpty() )
             {
-                WorkerProxy workerProxy = new WorkerProxy( id );
-                workerMap.put( id, workerProxy );
+                remove( Level.INFO, "Computer {0} left." );
             }
         }
         
-        private void startWorkerProxies()
+        private void downShared( final int jobId, final Shared shared )
+        {
+            try { computer.downShared( jobId, shared ); }
+            catch ( RemoteException exception ) {} // its TaskSender or ResultReceiver unregisters it.
+        }
+        
+        /**
+         * 
+         * @param task an executed task.
+         * @param result its Return.
+         * @return true if and only if task is an atomic TaskDecompose, 
+         * solved without a Computer-local fork-join subtree.
+         */
+        private boolean isAtomic( final Task task, final Return result )
         {
-            workerMap.values().forEach( Thread::start );
+            return task instanceof TaskDecompose && result instanceof ReturnValue
+                && ! ( Configuration.COMPUTER_FORK_JOIN && task.depth() >= Configuration.FORK_JOIN_DEPTH );
         }
        
-        private void unregister( Task task, Computer computer, int workerProxyId )
+        /**
+         * Unregister this ComputerProxy's failed Computer, returning its 
+         * in-flight tasks to the ready task queue. 
+         */
+        private void unregister() { remove( Level.WARNING, "Computer {0} failed." ); }
+       
+        /**
+         * Unregister this ComputerProxy's Computer, returning its in-flight 
+         * tasks to the ready task queue. Any thread may invoke this, any
+         * number of times.
+         * @param level the level at which the removal is logged.
+         * @param message the log message; its parameter is the Computer's id.
+         */
+        synchronized private void remove( final Level level, final String message )
         {
-            addReadyTask( task );
-            workerMap.remove( workerProxyId );
-            Logger.getLogger( this.getClass().getName() )
-                  .log( Level.WARNING, "Computer {0}: Worker failed.", workerProxyId );
-            if ( workerMap.isEmpty() )
+            if ( isAlive )
             {
-                computerProxies.remove( computer );
+                isAlive = false;
+                computerProxies.remove( computer, this ); // unless it rejoined
+                taskSender.interrupt();
+                resultReceiver.interrupt();
                 Logger.getLogger( ComputerProxy.class.getCanonicalName() )
-                      .log( Level.WARNING, "Computer {0} failed.", computerId );
+                      .log( level, message, computerId );
             }
+            inFlightTasks.keySet().forEach( taskId -> 
+            {
+                if ( inFlightTasks.remove( taskId ) != null )
+                {
+                    final Task task = taskTable.abandon( taskId, computerId );
+                    if ( task == null )
+                    {
+                        return; // its Return was accepted, or another Computer is running it.
+                    }
+                    if ( isJob( task.jobId() ) )
+                    {
+                        scheduler.add( task ); // its cache key, if any, is pending.
+                    }
+                    else
+                    {
+                        taskTable.accept( taskId ); // its job is finished.
+                    }
+                }
+            });
+            scheduler.unregister( computerId );
+            isRemoved.countDown();
         }
 
-        private class WorkerProxy extends Thread
+        private class TaskSender implements Runnable
         {
-            final Integer id;
-            
-            private WorkerProxy( int id ) { this.id = id; }
-            
             @Override
             public void run()
             {
-                while ( true )
+                while ( isAlive && ! isDraining )
                 {
-                    Task task = null;
                     try 
                     { 
-                        task = readyTasks.takeFirst();
-                        processResult( task, computer.execute( task ) );
+                        final List<Task> tasks = takeTasks();
+                        if ( isDraining )
+                        {
+                            tasks.forEach( scheduler::add );
+                            freeSlots.release( tasks.size() );
+                            break;
+                        }
+                        final int[] numQueued = { inFlightTasks.size() }; // ahead of each task, on its Computer
+                        tasks.removeIf( task -> 
+                        {
+                            if ( isJob( task.jobId() ) && taskTable.dispatch( task, computerId, numQueued[ 0 ] / numProcessors ) )
+                            {
+                                numQueued[ 0 ]++;
+                                return false;
+                            }
+                            freeSlots.release(); // a task of a finished job, or a stale or redundant speculative copy
+                            return true;
+                        });
+                        if ( tasks.isEmpty() )
+                        {
+                            continue;
+                        }
+                        tasks.forEach( task -> 
+                        {
+                            inFlightTasks.put( task.id(), task );
+                            if ( Configuration.ADAPTIVE_GRANULARITY )
+                            {
+                                task.granularity( granularityMonitor.granularity( task ) );
+                            }
+                        });
+                        if ( ! isAlive )
+                        {
+                            unregister();
+                            return;
+                        }
+                        final long startTime = System.nanoTime();
+                        computer.putTasks( tasks );
+                        granularityMonitor.dispatchTime( ( System.nanoTime() - startTime ) / 1000000.0, tasks.size() );
                     }
                     catch ( RemoteException exception )
                     {
-                        unregister( task, computer, id );
+                        unregister();
                         return;
                     } 
-                    catch ( InterruptedException ex ) 
+                    catch ( InterruptedException exception ) 
                     { 
-                        Logger.getLogger( this.getClass().getName() )
-                              .log( Level.INFO, null, ex ); 
+                        break;
+                    }
+                }
+                isSenderStopped = true;
+                removeIfDrained();
+            }
+            
+            /**
+             * Take a batch of ready tasks: Wait for a free slot and a ready
+             * task; then add ready tasks to the batch while there are free slots.
+             * @return a List of tasks, which is empty only if the proxy is 
+             * draining or removed.
+             * @throws InterruptedException
+             */
+            private List<Task> takeTasks() throws InterruptedException
+            {
+                final List<Task> tasks = new ArrayList<>();
+                freeSlots.acquire();
+                Task firstTask;
+                while ( ( firstTask = scheduler.poll( computerId, TAKE_TIMEOUT, TimeUnit.MILLISECONDS ) ) == null )
+                {
+                    if ( isDraining || ! isAlive )
+                    {
+                        freeSlots.release();
+                        return tasks;
+                    }
+                }
+                tasks.add( firstTask );
+                while ( freeSlots.tryAcquire() )
+                {
+                    final Task task = scheduler.poll( computerId );
+                    if ( task == null )
+                    {
+                        freeSlots.release();
+                        break;
+                    }
+                    tasks.add( task );
+                }
+                return tasks;
+            }
+        }
+        
+        private class ResultReceiver implements Runnable
+        {
+            @Override
+            public void run()
+            {
+                while ( isAlive )
+                {
+                    try 
+                    { 
+                        final List<Return> results = computer.takeResults();
+                        heartbeatTime = System.currentTimeMillis();
+                        final ComputerProxy computerProxy = isAlive ? ComputerProxy.this : computerProxies.get( computer );
+                        if ( computerProxy != null ) // else, its Computer left.
+                        {
+                            // If its Computer rejoined, some Returns may be of its new proxy's tasks.
+                            computerProxy.receive( results );
+                            computerProxy.removeIfDrained();
+                        }
+                    }
+                    catch ( RemoteException exception )
+                    {
+                        unregister();
+                        return;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Process the Returns of the tasks in flight to this proxy's Computer.
+         * @param results the Returns taken from the Computer.
+         */
+        private void receive( final List<Return> results )
+        {
+            for ( Return result : results )
+            {
+                if ( inFlightTasks.remove( result.taskId() ) == null )
+                {
+                    continue; // its task was returned to the ready task queue.
+                }
+                freeSlots.release();
+                final Task task = taskTable.accept( result.taskId() );
+                if ( task == null )
+                {
+                    continue; // a duplicate: the Return of another copy was accepted.
+                }
+                task.affinity( computerId );
+                if ( isAtomic( task, result ) )
+                {
+                    granularityMonitor.taskRunTime( task, result.taskRunTime() );
+                    final Job job = Configuration.SPECULATION ? jobs.get( task.jobId() ) : null;
+                    if ( job != null ) // decompositions and compositions, which take ~0 ms, would skew its median.
+                    {
+                        job.taskRunTime( result.taskRunTime() );
                     }
                 }
+                processResult( task, result );
             }
         }
     }
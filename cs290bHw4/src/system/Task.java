@@ -22,38 +22,153 @@
  * THE SOFTWARE.
  */
 package system;
+import api.Granularity;
+import api.Shared;
 import api.Space;
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.concurrent.Callable;
+import static util.VarInts.readSignedVarInt;
+import static util.VarInts.readVarInt;
+import static util.VarInts.writeSignedVarInt;
+import static util.VarInts.writeVarInt;
 
 /**
- *
+ * A Task is Externalizable: Its fields are written compactly, without field
+ * descriptors. Each concrete subclass has a public no-argument constructor, 
+ * and, if it has fields to send, overrides writeExternal and readExternal, 
+ * invoking their super methods first.
  * @author Peter Cappello
  */
-abstract public class Task implements Serializable, Callable<Return> 
+abstract public class Task implements Externalizable, Callable<Return> 
 { 
+    static final int NO_AFFINITY = -1;
+    
     private int id;
+    private int jobId;
     private int composeId;
     private int composeArgNum;
+    private int depth;
+    private Granularity granularity;
     protected Space space;
+    transient private ComputerImpl computer;
+    transient private Object cacheKey;
+    transient private boolean isSpeculative;
+    transient private int affinity = NO_AFFINITY;
     
     @Override
     abstract public Return call(); 
+    
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException
+    {
+        writeVarInt( out, id );
+        writeVarInt( out, jobId );
+        writeSignedVarInt( out, composeId ); // FINAL_RETURN_VALUE is negative.
+        writeVarInt( out, composeArgNum );
+        writeVarInt( out, depth );
+        writeSignedVarInt( out, granularity().coarsening() );
+    }
+    
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        id = readVarInt( in );
+        jobId = readVarInt( in );
+        composeId = readSignedVarInt( in );
+        composeArgNum = readVarInt( in );
+        depth = readVarInt( in );
+        final int coarsening = readSignedVarInt( in );
+        granularity = coarsening == 0 ? null : new Granularity( coarsening );
+    }
         
     public int  id() { return id; }
     public void id( int id ) { this.id = id; }
     
+    /**
+     * 
+     * @return the id of the job of which this task is a part.
+     */
+    public int  jobId() { return jobId; }
+    public void jobId( int jobId ) { this.jobId = jobId; }
+    
     public int  composeArgNum() { return composeArgNum; }
     public void composeArgNum( int composeArgNum ) { this.composeArgNum = composeArgNum; }
     
     public int  composeId() { return composeId; }
     public void composeId( int composeId ) { this.composeId = composeId; }
     
+    /**
+     * 
+     * @return the number of decompositions from the job's task to this task.
+     */
+    public int  depth() { return depth; }
+    public void depth( int depth ) { this.depth = depth; }
+    
+    /**
+     * 
+     * @return the Granularity that the Space advises for this task.
+     */
+    public Granularity granularity() { return granularity == null ? Granularity.DEFAULT : granularity; }
+    public void granularity( Granularity granularity ) { this.granularity = granularity; }
+    
+    void computer( ComputerImpl computer ) { this.computer = computer; }
+    
+    /**
+     * 
+     * @return true if and only if this is the Space's speculative copy of a
+     * straggling task.
+     */
+    boolean isSpeculative() { return isSpeculative; }
+    void speculative( boolean isSpeculative ) { this.isSpeculative = isSpeculative; }
+    
+    /**
+     * 
+     * @return the id of the Computer to which this task is preferably sent: 
+     * For a subtask or composition, the Computer that decomposed its parent;
+     * for a task that has returned, the Computer that executed it.
+     */
+    int  affinity() { return affinity; }
+    void affinity( int affinity ) { this.affinity = affinity; }
+    
+    /**
+     * A TaskDecompose whose value depends only on its parameters may override
+     * this to return a key, for the Space to cache its value. Tasks with equal
+     * keys must have equal values. A TaskCompose has the key of the task
+     * that it composes.
+     * @return the key under which this task's value is cached, or null if it is not.
+     */
+    public Object cacheKey() { return cacheKey; }
+    public void cacheKey( Object cacheKey ) { this.cacheKey = cacheKey; }
+    
+    /**
+     *
+     * @return the newest Shared value known to the Computer executing this task,
+     * or null if there is none.
+     */
+    public Shared shared() { return computer == null ? null : computer.shared( jobId ); }
+    
+    /**
+     * Offer a Shared value to the Computer executing this task, which propagates
+     * it to the Space, if it is newer than the Computer's Shared value.
+     * @param shared the Shared value produced by this task.
+     */
+    public void shared( Shared shared ) 
+    { 
+        if ( computer != null )
+        {
+            computer.upShared( jobId, shared );
+        }
+    }
+    
     @Override
     public String toString()
     {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append( " id: ").append( id );
+        stringBuilder.append( " jobId: ").append( jobId );
         stringBuilder.append( " composeId: ").append( composeId );
         stringBuilder.append( " composeArgNum: ").append( composeArgNum );
         stringBuilder.append( ' ' );
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * The Space's table of in-flight tasks: tasks sent to Computers, whose 
+ * Returns have not been accepted. A task may be running on more than 1 
+ * Computer: a speculative copy of a straggler, or a task re-executed after
+ * its Computer failed, whose Return may yet arrive. The first Return of a 
+ * task is accepted; later ones are duplicates, and are discarded.
+ * @author Peter Cappello
+ */
+class TaskTable 
+{
+    final private Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * Record that a task is being sent to a Computer.
+     * @param task the task, or a speculative copy of it.
+     * @param computerId the id of the Computer.
+     * @param numQueuedRounds the number of rounds of tasks, one per processor,
+     * queued on the Computer ahead of the task, which it waits for before it 
+     * starts running.
+     * @return false if and only if the task is not to be sent: It is a copy 
+     * of a task whose Return has been accepted, or that is running on the 
+     * Computer.
+     */
+    boolean dispatch( final Task task, final int computerId, final int numQueuedRounds )
+    {
+        final Entry entry = task.isSpeculative() 
+                          ? entries.get( task.id() ) 
+                          : entries.computeIfAbsent( task.id(), id -> new Entry( task ) );
+        if ( entry == null )
+        {
+            return false;
+        }
+        synchronized ( entry )
+        {
+            if ( entry.computerIds.isEmpty() )
+            {
+                entry.dispatchTime = System.currentTimeMillis();
+                entry.numQueuedRounds = numQueuedRounds;
+            }
+            return entry.computerIds.add( computerId );
+        }
+    }
+    
+    /**
+     * Accept a task's Return, if it is the first.
+     * @param taskId the id of the task that the Return is of.
+     * @return the task, as it was made ready, or null if the Return is a duplicate.
+     */
+    Task accept( final int taskId )
+    {
+        final Entry entry = entries.remove( taskId );
+        return entry == null ? null : entry.task;
+    }
+    
+    /**
+     * Record that a task's Computer failed.
+     * @param taskId the id of the task.
+     * @param computerId the id of the failed Computer.
+     * @return the task, if it is to be made ready again, since no other 
+     * Computer is running it; otherwise, null.
+     */
+    Task abandon( final int taskId, final int computerId )
+    {
+        final Entry entry = entries.get( taskId );
+        if ( entry == null )
+        {
+            return null;
+        }
+        synchronized ( entry )
+        {
+            entry.computerIds.remove( computerId );
+            return entry.computerIds.isEmpty() ? entry.task : null;
+        }
+    }
+    
+    /**
+     * Forget the tasks of a finished job. Their Returns, if any arrive, are 
+     * discarded as duplicates.
+     * @param jobId the id of the finished job.
+     */
+    void removeJob( final int jobId ) { entries.values().removeIf( entry -> entry.task.jobId() == jobId ); }
+    
+    /**
+     * Find the stragglers: tasks that have been on 1 Computer for longer than
+     * their straggler time, and have not been speculated. Each is returned once.
+     * @param stragglerTime maps a task, and the number of rounds of tasks 
+     * queued ahead of it when it was sent, to its straggler time, in 
+     * milliseconds since it was sent, so that waiting is not straggling.
+     * @return the stragglers.
+     */
+    List<Task> stragglers( final ToLongBiFunction<Task, Integer> stragglerTime )
+    {
+        final long now = System.currentTimeMillis();
+        final List<Task> stragglers = new ArrayList<>();
+        for ( Entry entry : entries.values() )
+        {
+            synchronized ( entry )
+            {
+                if ( ! entry.isSpeculated && entry.computerIds.size() == 1 
+                        && now - entry.dispatchTime > stragglerTime.applyAsLong( entry.task, entry.numQueuedRounds ) )
+                {
+                    entry.isSpeculated = true;
+                    stragglers.add( entry.task );
+                }
+            }
+        }
+        return stragglers;
+    }
+    
+    private static class Entry
+    {
+        final private Task task;
+        final private Set<Integer> computerIds = new HashSet<>( 4 ); // guarded by this
+        private long dispatchTime; // guarded by this
+        private int numQueuedRounds; // guarded by this
+        private boolean isSpeculated; // guarded by this
+        
+        Entry( final Task task ) { this.task = task; }
+    }
+}
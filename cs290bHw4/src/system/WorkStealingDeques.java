@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Lock-free work-stealing deques of ready tasks. Each registered Computer 
+ * has its own deque, into which the ready tasks with affinity for it - the 
+ * subtasks and composition of a task that it decomposed - are added. A 
+ * Computer takes the most recently added task from its own deque, preserving
+ * the locality of a decomposition subtree. When its deque is empty, it takes
+ * the most recently added task from the deque of tasks with no affinity for a
+ * registered Computer (e.g., a job's first task), or else steals the least 
+ * recently added task, the root of the largest subtree, from another 
+ * Computer's deque.
+ * @author Peter Cappello
+ */
+class WorkStealingDeques 
+{
+    final private Set<Integer> computerIds;
+    final private Map<Integer, Deque<Task>> computerDeques = new ConcurrentHashMap<>();
+    final private Deque<Task> sharedDeque = new ConcurrentLinkedDeque<>();
+    
+    /**
+     * 
+     * @param computerIds the ids of the registered Computers, which the 
+     * Scheduler removes a Computer's id from before unregistering it here.
+     */
+    WorkStealingDeques( final Set<Integer> computerIds ) { this.computerIds = computerIds; }
+    
+    /**
+     * Add a task to the deque of the Computer for which it has affinity, if
+     * that Computer is registered, and otherwise to the shared deque. A 
+     * Computer's deque is made when a task is first added to it. The task is
+     * added under the lock of the deque's map entry, so that it is not added 
+     * to the deque of a Computer after its deque is emptied by unregister.
+     * @param task the ready task.
+     */
+    void add( final Task task ) 
+    {
+        final Deque<Task> deque = task.affinity() == Task.NO_AFFINITY ? null 
+                : computerDeques.compute( task.affinity(), ( computerId, computerDeque ) -> 
+        {
+            if ( computerDeque == null && ! computerIds.contains( computerId ) )
+            {
+                return null;
+            }
+            final Deque<Task> addedToDeque = computerDeque == null ? new ConcurrentLinkedDeque<>() : computerDeque;
+            addedToDeque.addFirst( task );
+            return addedToDeque;
+        });
+        if ( deque == null )
+        {
+            sharedDeque.addFirst( task );
+        }
+    }
+    
+    /**
+     * 
+     * @param computerId the id of the Computer to which the task is to be sent.
+     * @return a ready task, or null if none was found.
+     */
+    Task poll( final int computerId )
+    {
+        final Deque<Task> ownDeque = computerDeques.get( computerId );
+        Task task = ownDeque == null ? null : ownDeque.pollFirst();
+        if ( task != null )
+        {
+            return task;
+        }
+        task = sharedDeque.pollFirst();
+        if ( task != null )
+        {
+            return task;
+        }
+        for ( Deque<Task> deque : computerDeques.values() )
+        {
+            task = deque.pollLast();
+            if ( task != null )
+            {
+                return task;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Move the unregistered Computer's ready tasks to the shared deque. Its id
+     * has been removed from the registered Computers' ids.
+     * @param computerId the id of the unregistered Computer.
+     */
+    void unregister( final int computerId ) 
+    {
+        final Deque<Task> deque = computerDeques.remove( computerId );
+        if ( deque != null )
+        {
+            for ( Task task = deque.pollLast(); task != null; task = deque.pollLast() )
+            {
+                sharedDeque.addFirst( task );
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package util;
+
+/**
+ * A concurrent map from int keys to non-null values that does not box its keys.
+ * The map is partitioned into stripes, each of which is an open-addressing
+ * (linear probing) hash table guarded by its own lock, so that threads that
+ * access different stripes do not contend.
+ * @author Peter Cappello
+ * @param <V> the type of the mapped values.
+ */
+public class ConcurrentIntMap<V>
+{
+    static final private int NUM_STRIPES = 64; // a power of 2
+    static final private int MIN_STRIPE_CAPACITY = 16; // a power of 2
+    
+    final private Stripe<V>[] stripes;
+    
+    public ConcurrentIntMap() { this( NUM_STRIPES * MIN_STRIPE_CAPACITY / 2 ); }
+    
+    /**
+     *
+     * @param expectedSize the number of mappings the map is sized to hold without resizing.
+     */
+    @SuppressWarnings( "unchecked" )
+    public ConcurrentIntMap( final int expectedSize )
+    {
+        int stripeCapacity = MIN_STRIPE_CAPACITY;
+        while ( stripeCapacity * NUM_STRIPES < 2 * (long) expectedSize )
+        {
+            stripeCapacity *= 2;
+        }
+        stripes = new Stripe[ NUM_STRIPES ];
+        for ( int i = 0; i < NUM_STRIPES; i++ )
+        {
+            stripes[ i ] = new Stripe<>( stripeCapacity );
+        }
+    }
+    
+    /**
+     *
+     * @param key
+     * @return the value to which key is mapped, or null if there is none.
+     */
+    public V get( final int key ) 
+    { 
+        final int hash = hash( key );
+        return stripe( hash ).get( key, hash ); 
+    }
+    
+    /**
+     * Map key to value, replacing its previous value, if any.
+     * @param key
+     * @param value not null.
+     * @return the previous value of key, or null if there was none.
+     */
+    public V put( final int key, final V value ) 
+    { 
+        assert value != null;
+        final int hash = hash( key );
+        return stripe( hash ).put( key, hash, value ); 
+    }
+    
+    /**
+     *
+     * @param key
+     * @return the value to which key was mapped, or null if there was none.
+     */
+    public V remove( final int key ) 
+    { 
+        final int hash = hash( key );
+        return stripe( hash ).remove( key, hash ); 
+    }
+    
+    /**
+     *
+     * @return the number of mappings.
+     */
+    public int size()
+    {
+        int size = 0;
+        for ( Stripe<V> stripe : stripes )
+        {
+            size += stripe.size();
+        }
+        return size;
+    }
+    
+    private Stripe<V> stripe( final int hash ) { return stripes[ hash >>> 26 ]; } // top 6 bits
+    
+    static private int hash( final int key ) { return key * 0x9E3779B9; } // Fibonacci hashing
+    
+    static final private class Stripe<V>
+    {
+        private int[] keys;
+        private Object[] values; // null denotes an empty slot
+        private int size;
+        
+        Stripe( final int capacity ) 
+        { 
+            keys = new int[ capacity ];
+            values = new Object[ capacity ];
+        }
+        
+        @SuppressWarnings( "unchecked" )
+        synchronized V get( final int key, final int hash )
+        {
+            final int mask = keys.length - 1;
+            for ( int slot = hash & mask; values[ slot ] != null; slot = ( slot + 1 ) & mask )
+            {
+                if ( keys[ slot ] == key )
+                {
+                    return (V) values[ slot ];
+                }
+            }
+            return null;
+        }
+        
+        @SuppressWarnings( "unchecked" )
+        synchronized V put( final int key, final int hash, final V value )
+        {
+            final int mask = keys.length - 1;
+            int slot = hash & mask;
+            for ( ; values[ slot ] != null; slot = ( slot + 1 ) & mask )
+            {
+                if ( keys[ slot ] == key )
+                {
+                    final V previous = (V) values[ slot ];
+                    values[ slot ] = value;
+                    return previous;
+                }
+            }
+            keys[ slot ] = key;
+            values[ slot ] = value;
+            if ( 2 * ++size > keys.length )
+            {
+                resize();
+            }
+            return null;
+        }
+        
+        /**
+         * Remove key, shifting back later entries of its probe sequence to 
+         * fill the vacated slot, so that the table needs no tombstones.
+         */
+        @SuppressWarnings( "unchecked" )
+        synchronized V remove( final int key, final int hash )
+        {
+            final int mask = keys.length - 1;
+            int slot = hash & mask;
+            for ( ; values[ slot ] != null; slot = ( slot + 1 ) & mask )
+            {
+                if ( keys[ slot ] == key )
+                {
+                    break;
+                }
+            }
+            final V value = (V) values[ slot ];
+            if ( value == null )
+            {
+                return null;
+            }
+            int empty = slot;
+            for ( int next = ( slot + 1 ) & mask; values[ next ] != null; next = ( next + 1 ) & mask )
+            {
+                final int home = hash( keys[ next ] ) & mask;
+                if ( ( ( next - home ) & mask ) >= ( ( next - empty ) & mask ) )
+                {
+                    keys[ empty ] = keys[ next ];
+                    values[ empty ] = values[ next ];
+                    empty = next;
+                }
+            }
+            values[ empty ] = null;
+            size--;
+            return value;
+        }
+        
+        synchronized int size() { return size; }
+        
+        private void resize()
+        {
+            final int[] oldKeys = keys;
+            final Object[] oldValues = values;
+            keys = new int[ 2 * oldKeys.length ];
+            values = new Object[ 2 * oldValues.length ];
+            final int mask = keys.length - 1;
+            for ( int i = 0; i < oldKeys.length; i++ )
+            {
+                if ( oldValues[ i ] != null )
+                {
+                    int slot = hash( oldKeys[ i ] ) & mask;
+                    while ( values[ slot ] != null )
+                    {
+                        slot = ( slot + 1 ) & mask;
+                    }
+                    keys[ slot ] = oldKeys[ i ];
+                    values[ slot ] = oldValues[ i ];
+                }
+            }
+        }
+    }
+}
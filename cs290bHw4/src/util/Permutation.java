@@ -23,34 +23,75 @@
  */
 package util;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Consumer;
-
 /**
- *
+ * An allocation-free engine that enumerates the permutations of an int array
+ * in place, maintaining incrementally the cost of the path through the fixed
+ * prefix of the array: Fixing one more element adds the cost of 1 edge.
+ * Prefixes whose cost is no less than the Visitor's bound are not extended.
  * @author Pete Cappello
- * @param <T> the type of objectList being permuted.
  */
-public class Permutation<T> 
+public class Permutation 
 {
     /**
-     * Permute the elements of the List of Integers, starting from element k.
-     * @param permutation the List of Integers to be permuted.
-     * @param k index of element of the sublist to be permuted.
-     * @param consumer a Consumer that takes the List of Integers, permutation, as its parameter.
+     * The cost of the edge between 2 consecutive elements of a permutation.
+     */
+    @FunctionalInterface
+    public interface EdgeCost
+    {
+        double cost( int from, int to );
+    }
+    
+    /**
+     * A consumer of permutations, which also bounds their enumeration.
      */
-    final static public void iterate( final List<Integer> permutation, final int k, final Consumer<List<Integer>> consumer )
+    public interface Visitor
     {
-        for( int i = k; i < permutation.size(); i++ )
+        /**
+         *
+         * @return a prefix whose cost is no less than this bound is not extended.
+         */
+        double bound();
+        
+        /**
+         * Consume a permutation. The array is reused; it must be copied to be retained.
+         * @param permutation the permutation.
+         * @param cost the cost of the path through the permutation's elements.
+         */
+        void visit( int[] permutation, double cost );
+    }
+    
+    /**
+     * Permute the elements of the array, starting from element k.
+     * @param permutation the array to be permuted; its first k elements are fixed.
+     * @param k index of element of the subarray to be permuted.
+     * @param cost the cost of the path through the first k elements.
+     * @param edgeCost the cost of an edge between consecutive elements.
+     * @param visitor consumes each permutation whose every prefix costs less than its bound.
+     */
+    static public void iterate( final int[] permutation, final int k, final double cost, 
+                                final EdgeCost edgeCost, final Visitor visitor )
+    {
+        if ( k == permutation.length )
         {
-            Collections.swap( permutation, i, k );
-            iterate( permutation, k + 1 , consumer );
-            Collections.swap( permutation, k, i );
+            visitor.visit( permutation, cost );
+            return;
         }
-        if ( k == permutation.size() - 1 )
+        for( int i = k; i < permutation.length; i++ )
         {
-            consumer.accept( permutation );
+            swap( permutation, i, k );
+            final double prefixCost = k == 0 ? 0.0 : cost + edgeCost.cost( permutation[ k - 1 ], permutation[ k ] );
+            if ( prefixCost < visitor.bound() )
+            {
+                iterate( permutation, k + 1 , prefixCost, edgeCost, visitor );
+            }
+            swap( permutation, k, i );
         }
     }
+    
+    static private void swap( final int[] array, final int i, final int j )
+    {
+        final int temp = array[ i ];
+        array[ i ] = array[ j ];
+        array[ j ] = temp;
+    }
 }
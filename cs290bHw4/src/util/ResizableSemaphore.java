@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package util;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A Semaphore whose number of permits can be changed while threads hold or 
+ * wait for its permits. When the number is reduced below the number held, 
+ * acquirers wait until enough permits are released.
+ * @author Peter Cappello
+ */
+public class ResizableSemaphore extends Semaphore
+{
+    private int numPermits; // guarded by this
+    
+    /**
+     *
+     * @param numPermits the initial number of permits.
+     */
+    public ResizableSemaphore( final int numPermits ) 
+    { 
+        super( numPermits );
+        this.numPermits = numPermits;
+    }
+    
+    /**
+     *
+     * @param numPermits the new number of permits, held or available.
+     */
+    synchronized public void numPermits( final int numPermits )
+    {
+        if ( numPermits < 0 )
+        {
+            throw new IllegalArgumentException( "Number of permits must be nonnegative: " + numPermits );
+        }
+        final int delta = numPermits - this.numPermits;
+        this.numPermits = numPermits;
+        if ( delta > 0 )
+        {
+            release( delta );
+        }
+        else if ( delta < 0 )
+        {
+            reducePermits( -delta );
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 peter.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable-length encoding of integers, 7 bits per byte, least significant
+ * group first; the high bit of a byte is set if and only if another byte 
+ * follows. Small nonnegative values, such as ids, counts, and city numbers, 
+ * take 1 to 3 bytes, instead of 4 or 8. Signed values are zigzag encoded, so
+ * that small negative values also are short.
+ * @author Peter Cappello
+ */
+public class VarInts 
+{
+    private VarInts() {}
+    
+    public static void writeVarInt( final DataOutput out, int value ) throws IOException
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            out.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( value );
+    }
+    
+    public static int readVarInt( final DataInput in ) throws IOException
+    {
+        int value = 0;
+        for ( int shift = 0; shift < 32; shift += 7 )
+        {
+            final byte b = in.readByte();
+            value |= ( b & 0x7F ) << shift;
+            if ( b >= 0 )
+            {
+                return value;
+            }
+        }
+        throw new IOException( "Malformed variable-length int." );
+    }
+    
+    public static void writeSignedVarInt( final DataOutput out, final int value ) throws IOException
+    {
+        writeVarInt( out, ( value << 1 ) ^ ( value >> 31 ) );
+    }
+    
+    public static int readSignedVarInt( final DataInput in ) throws IOException
+    {
+        final int value = readVarInt( in );
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+    
+    public static void writeVarLong( final DataOutput out, long value ) throws IOException
+    {
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            out.writeByte( (int) ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( (int) value );
+    }
+    
+    public static long readVarLong( final DataInput in ) throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 )
+        {
+            final byte b = in.readByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( b >= 0 )
+            {
+                return value;
+            }
+        }
+        throw new IOException( "Malformed variable-length long." );
+    }
+    
+    /**
+     * Write an array of nonnegative ints, preceded by its length.
+     * @param out
+     * @param values
+     * @throws IOException 
+     */
+    public static void writeVarInts( final DataOutput out, final int[] values ) throws IOException
+    {
+        writeVarInt( out, values.length );
+        for ( int value : values )
+        {
+            writeVarInt( out, value );
+        }
+    }
+    
+    public static int[] readVarInts( final DataInput in ) throws IOException
+    {
+        final int[] values = new int[ readVarInt( in ) ];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[ i ] = readVarInt( in );
+        }
+        return values;
+    }
+}